@@ -7,6 +7,12 @@ import app.audio.Collections.Podcast;
 import app.audio.Files.AudioFile;
 import app.audio.Files.Episode;
 import app.audio.Files.Song;
+import app.audio.LibraryEntry;
+import app.catalog.Catalog;
+import app.catalog.Checkpoint;
+import app.catalog.LibrarySnapshot;
+import app.catalog.StringInterner;
+import app.searchBar.Filters;
 import app.user.User;
 import app.utils.Enums;
 
@@ -16,36 +22,150 @@ import fileio.input.PodcastInput;
 import fileio.input.EpisodeInput;
 import fileio.input.UserInput;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Objects;
-import java.util.Iterator;
-import java.util.Comparator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
+/**
+ * Holds the whole state of the application.
+ * <p>
+ * Consistency model, for running commands from several threads: the state is guarded by
+ * one read-write lock and by a lock for every user (users are spread over a fixed number of
+ * lock stripes). CommandDispatcher takes them according to the scope of the command:
+ * <ul>
+ *     <li>a GLOBAL command holds the exclusive lock, so it runs alone and sees every
+ *     command before it complete. Cross-user operations such as deleteUser, which check
+ *     every player and then remove the user with its songs, albums, likes and follows,
+ *     are therefore atomic: no other command sees the user half deleted.</li>
+ *     <li>a USER command holds the shared lock and the lock of its user. Commands of
+ *     different users run at the same time, commands of one user one after the other,
+ *     and none of them runs during a GLOBAL command.</li>
+ * </ul>
+ * The catalog collections are only changed under the exclusive lock, so they need no
+ * synchronization of their own.
+ * <p>
+ * Admin also takes these locks itself, so it can be called directly from any thread, not
+ * only through the dispatcher: the methods that change the catalog (addAlbum, deleteUser...)
+ * hold the exclusive lock, and the methods returning copies (getSongs, getUser, the top 5
+ * statistics...) hold the shared lock. Likes and follows (likeSong, followPlaylist...) hold
+ * only the shared lock and the lock of the user, so the likes of different users are
+ * published at the same time: the counters are changed atomically and the leaderboards and
+ * reverse indexes take a short lock of their own. The like and follow commands are still
+ * GLOBAL, because the commands of other users read the counters (home pages, the followers
+ * of a playlist) and a replay must not depend on how the threads interleave. The locks are
+ * reentrant, so the commands, which already hold them, are unaffected.
+ * Two things are left to the caller: the read only views (songs, podcasts, usersOfType,
+ * getEntriesByName, getSongCandidates) must be read while holding the shared lock, and the
+ * state of a user (player, liked songs, playlists) must be changed while holding the lock
+ * of that user, as CommandDispatcher does.
+ */
 public final class Admin {
-    private static List<User> users = new ArrayList<>();
-    private static List<Song> songs = new ArrayList<>();
-    private static List<Podcast> podcasts = new ArrayList<>();
-    private static int timestamp = 0;
+    private static volatile Catalog catalog = new Catalog();
+    private static volatile int timestamp = 0;
     private static final int MAX_ALLOWED_ATTEMPTS = 5;
+    private static final int USER_LOCK_STRIPES = 64;
 
-    private static Admin admin = null;
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] userLocks = new ReentrantLock[USER_LOCK_STRIPES];
 
     private Admin() {
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+    }
 
+    private static final class Holder {
+        private static final Admin INSTANCE = new Admin();
     }
+
     /**
      * The getInstance method returns an instance of the Admin class using the
      * Singleton design pattern.
-     * If an instance of the Admin class does not exist, a new one is created;
-     * otherwise, the existing instance is returned.
+     * The instance is created the first time this is called, safely for any number
+     * of threads.
      * @return the singleton instance of the Admin class
      */
     public static Admin getInstance() {
-        if (admin == null) {
-            admin = new Admin();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @return the lock held by GLOBAL commands, which excludes every other command
+     */
+    public Lock exclusiveLock() {
+        return stateLock.writeLock();
+    }
+
+    /**
+     * @return the lock held by USER commands, together with the lock of their user
+     */
+    public Lock sharedLock() {
+        return stateLock.readLock();
+    }
+
+    /**
+     * @param username the user running a command
+     * @return the lock that orders the commands of that user
+     */
+    public Lock userLock(final String username) {
+        int hash = username == null ? 0 : username.hashCode();
+        return userLocks[Math.floorMod(hash, userLocks.length)];
+    }
+
+    private void exclusive(final Runnable action) {
+        Lock lock = exclusiveLock();
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T exclusive(final Supplier<T> action) {
+        Lock lock = exclusiveLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action with the locks of a USER command of the given user.
+     */
+    private void sharedForUser(final User user, final Runnable action) {
+        Lock shared = sharedLock();
+        Lock userLock = userLock(user.getUsername());
+        shared.lock();
+        try {
+            userLock.lock();
+            try {
+                action.run();
+            } finally {
+                userLock.unlock();
+            }
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private <T> T shared(final Supplier<T> action) {
+        Lock lock = sharedLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
         }
-        return admin;
     }
 
     /**
@@ -54,11 +174,15 @@ public final class Admin {
      * @param userInputList represents the list of users we have registered
      */
     public void setUsers(final List<UserInput> userInputList) {
-        users = new ArrayList<>();
-        for (UserInput userInput : userInputList) {
-            users.add(new User(userInput.getUsername(), userInput.getAge(),
-                    userInput.getCity(), Enums.userType.USER));
-        }
+        exclusive(() -> {
+            for (User user : catalog.getUsers()) {
+                catalog.removeUser(user);
+            }
+            for (UserInput userInput : userInputList) {
+                catalog.addUser(new User(userInput.getUsername(), userInput.getAge(),
+                        userInput.getCity(), Enums.userType.USER));
+            }
+        });
     }
 
     /**
@@ -68,20 +192,80 @@ public final class Admin {
      *                      from the input(example : name, Lyrics)
      */
     public void setSongs(final List<SongInput> songInputList) {
-        songs = new ArrayList<>();
-        for (SongInput songInput : songInputList) {
-            songs.add(new Song(songInput.getName(), songInput.getDuration(), songInput.getAlbum(),
-                    songInput.getTags(), songInput.getLyrics(), songInput.getGenre(),
-                    songInput.getReleaseYear(), songInput.getArtist()));
-        }
+        exclusive(() -> {
+            catalog.removeSongs(catalog.getSongs());
+            for (SongInput songInput : songInputList) {
+                catalog.addSong(new Song(songInput.getName(), songInput.getDuration(),
+                        songInput.getAlbum(), songInput.getTags(), songInput.getLyrics(),
+                        songInput.getGenre(), songInput.getReleaseYear(), songInput.getArtist()));
+            }
+        });
+    }
+
+    /**
+     * Used to start a run from a library that was already parsed: users are created from
+     * the library users, and songs and podcasts are copies of the library ones.
+     * @param library the parsed library
+     */
+    public void setLibrary(final LibrarySnapshot library) {
+        exclusive(() -> {
+            setUsers(library.getUsers());
+            catalog.removeSongs(catalog.getSongs());
+            for (Song song : library.getSongs()) {
+                catalog.addSong(new Song(song));
+            }
+            for (Podcast podcast : catalog.getPodcasts()) {
+                catalog.removePodcast(podcast);
+            }
+            for (Podcast podcast : library.getPodcasts()) {
+                catalog.addPodcast(new Podcast(podcast.getName(), podcast.getOwner(),
+                        new ArrayList<>(podcast.getEpisodes())));
+            }
+        });
+    }
+
+    /**
+     * Used to register the album of an artist, together with its songs.
+     * @param album the album that was added
+     */
+    public void addAlbum(final Album album) {
+        exclusive(() -> catalog.addAlbum(album));
+    }
+
+    /**
+     * Used to unregister an album, together with its songs.
+     * @param album the album that was removed
+     */
+    public void removeAlbum(final Album album) {
+        exclusive(() -> catalog.removeAlbum(album));
     }
 
     /**
-     * Used to update the list of songs after a certain operation that adds or deletes songs.
-     * @param songsUpdate represents the updated list of songs
+     * Used to register a playlist that a user has just created.
+     * @param playlist the new playlist
      */
-    public void updateSongList(final List<Song> songsUpdate) {
-        songs = songsUpdate;
+    public void addPlaylist(final Playlist playlist) {
+        exclusive(() -> catalog.addPlaylist(playlist));
+    }
+
+    /**
+     * Used by the search bar to find all the entries of a type whose name starts with the
+     * given prefix, without going through every entry.
+     * @param type the searched type
+     * @param name the start of the name
+     * @return a read only view over the entries found, in library order, to be read while
+     * holding the shared lock
+     */
+    public List<LibraryEntry> getEntriesByName(final String type, final String name) {
+        return catalog.getEntriesByName(type, name);
+    }
+
+    /**
+     * Used to remove songs from the general list after an operation that deletes them.
+     * @param songsToRemove the songs that are no longer in the library
+     */
+    public void removeSongs(final Collection<Song> songsToRemove) {
+        exclusive(() -> catalog.removeSongs(songsToRemove));
     }
 
     /**
@@ -91,15 +275,20 @@ public final class Admin {
      *                         received from the input(name, owner and episodes)
      */
     public void setPodcasts(final List<PodcastInput> podcastInputList) {
-        podcasts = new ArrayList<>();
-        for (PodcastInput podcastInput : podcastInputList) {
-            List<Episode> episodes = new ArrayList<>();
-            for (EpisodeInput episodeInput : podcastInput.getEpisodes()) {
-                episodes.add(new Episode(episodeInput.getName(), episodeInput.getDuration(),
-                        episodeInput.getDescription()));
-            }
-            podcasts.add(new Podcast(podcastInput.getName(), podcastInput.getOwner(), episodes));
-        }
+        exclusive(() -> {
+            for (Podcast podcast : catalog.getPodcasts()) {
+                catalog.removePodcast(podcast);
+            }
+            for (PodcastInput podcastInput : podcastInputList) {
+                List<Episode> episodes = new ArrayList<>();
+                for (EpisodeInput episodeInput : podcastInput.getEpisodes()) {
+                    episodes.add(new Episode(episodeInput.getName(), episodeInput.getDuration(),
+                            episodeInput.getDescription()));
+                }
+                catalog.addPodcast(new Podcast(podcastInput.getName(), podcastInput.getOwner(),
+                        episodes));
+            }
+        });
     }
 
     /**
@@ -107,8 +296,46 @@ public final class Admin {
      * @return the ArrayList of songs
      */
     public List<Song> getSongs() {
+        return shared(() -> catalog.getSongs());
+    }
+
+    /**
+     * Used to go through the songs without copying them, for example when searching.
+     * @return a read only view over the songs, in library order, to be read while holding
+     * the shared lock
+     */
+    public Collection<Song> songs() {
+        return catalog.songs();
+    }
+
+    /**
+     * Used by song searches: the name, tags, genre, artist and album filters are answered
+     * by intersecting the posting lists of the song indexes.
+     * @param filters the filters of the search
+     * @return the songs matching those filters, in library order, found while they are read,
+     * which must happen while holding the shared lock
+     */
+    public Iterable<Song> getSongCandidates(final Filters filters) {
+        return catalog.getSongCandidates(filters);
+    }
+
+    /**
+     * Used to go through the podcasts without copying them, for example when searching.
+     * @return a read only view over the podcasts, in library order, to be read while holding
+     * the shared lock
+     */
+    public Collection<Podcast> podcasts() {
+        return catalog.podcasts();
+    }
 
-        return new ArrayList<>(songs);
+    /**
+     * Used to go through the users of one type without copying them.
+     * @param type the type of the users
+     * @return a read only view over the users with that type, to be read while holding the
+     * shared lock
+     */
+    public Collection<User> usersOfType(final Enums.userType type) {
+        return catalog.usersOfType(type);
     }
 
     /**
@@ -116,8 +343,7 @@ public final class Admin {
      * @return the ArrayList of podcasts.
      */
     public List<Podcast> getPodcasts() {
-
-        return new ArrayList<>(podcasts);
+        return shared(() -> catalog.getPodcasts());
     }
 
     /**
@@ -125,7 +351,7 @@ public final class Admin {
      * @return the Arraylist of users.
      */
     public List<User> getUsers() {
-        return new ArrayList<>(users);
+        return shared(() -> catalog.getUsers());
     }
 
     /**
@@ -133,14 +359,7 @@ public final class Admin {
      * @return an arrayList witch contains all the users that has type Artist.
      */
     public List<User> getArtists() {
-        List<User> all = Admin.getInstance().getUsers();
-        List<User> artists = new ArrayList<>();
-        for (User user: all) {
-            if (user.getType() == Enums.userType.ARTIST) {
-                artists.add(user);
-            }
-        }
-        return artists;
+        return shared(() -> catalog.getUsers(Enums.userType.ARTIST));
     }
 
     /**
@@ -148,14 +367,7 @@ public final class Admin {
      * @return an arrayList witch contains all the users that has type Host.
      */
     public List<User> getHosts() {
-        List<User> all =  Admin.getInstance().getUsers();
-        List<User> hosts = new ArrayList<>();
-        for (User user: all) {
-            if (user.getType() == Enums.userType.HOST) {
-                hosts.add(user);
-            }
-        }
-        return hosts;
+        return shared(() -> catalog.getUsers(Enums.userType.HOST));
     }
 
     /**
@@ -163,11 +375,7 @@ public final class Admin {
      * @return  a List witch contains all the albums from all artists.
      */
     public List<Album> getAlbums() {
-        List<Album> albums = new ArrayList<>();
-         for (User user : users) {
-            albums.addAll(user.getAlbums());
-        }
-     return albums;
+        return shared(() -> catalog.getAlbums());
     }
 
     /**
@@ -175,42 +383,59 @@ public final class Admin {
      * @return a List witch contains all playlists from all users.
      */
     public List<Playlist> getPlaylists() {
-        List<Playlist> playlists = new ArrayList<>();
-        for (User user : users) {
-            playlists.addAll(user.getPlaylists());
-        }
-        return playlists;
+        return shared(() -> catalog.getPlaylists());
     }
 
     /**
-     * Used to find a certain user by username.
+     * Used to find a certain user by username. The player of the user is not brought up to
+     * date here; the command dispatcher does that for the user running a command.
      * @param username used to compare this with the names of the users in system
      * @return the user we were looking for.
      */
     public User getUser(final String username) {
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return user;
+        return shared(() -> catalog.getUser(username));
+    }
+
+    /**
+     * Brings the players of all the users up to the current timestamp. Players without a
+     * source have nothing to play, so only the users with a loaded source are visited.
+     * Needed before
+     * looking at what other users are listening to, or before changing something
+     * they may be listening to.
+     */
+    public void syncPlayers() {
+        exclusive(() -> {
+            for (User user : catalog.references().getLoadedUsers()) {
+                user.syncTime(timestamp);
             }
-        }
-        return null;
+        });
+    }
+
+    /**
+     * Called by the player of a user when it gets or loses its source.
+     * @param user the user whose player changed
+     * @param hasSource true if a source was loaded, false if it was cleared
+     */
+    public void loadChanged(final User user, final boolean hasSource) {
+        catalog.references().loadChanged(user, hasSource);
     }
 
     /**
-     * Used to modify timestamp
+     * Called when a user goes to another page.
+     * @param user the user who changed the page
+     */
+    public void pageChanged(final User user) {
+        catalog.references().pageChanged(user);
+    }
+
+    /**
+     * Used to modify timestamp. Players are not advanced here: every user catches up with
+     * the current timestamp when it runs a command (see CommandDispatcher) or when other
+     * users need to see it (see syncPlayers).
      * @param newTimestamp is the time we want to reach
      */
     public void updateTimestamp(final int newTimestamp) {
-        int elapsed = newTimestamp - timestamp;
-        timestamp = newTimestamp;
-        if (elapsed == 0) {
-            return;
-        }
-        for (User user : users) {
-            if (user.getMode() == Enums.UserMode.ONLINE) {
-                user.simulateTime(elapsed);
-            }
-        }
+        exclusive(() -> timestamp = newTimestamp);
     }
     // Statistics
     /**
@@ -218,18 +443,13 @@ public final class Admin {
      * @return a list of the top 5 songs in the library that received the most likes
      */
     public List<String> getTop5Songs() {
-        List<Song> sortedSongs = new ArrayList<>(songs);
-        sortedSongs.sort(Comparator.comparingInt(Song::getLikes).reversed());
-        List<String> topSongs = new ArrayList<>();
-        int count = 0;
-        for (Song song : sortedSongs) {
-            if (count >= MAX_ALLOWED_ATTEMPTS) {
-                break;
-            }
-            topSongs.add(song.getName());
-            count++;
-        }
-        return topSongs;
+        return shared(() -> {
+            List<String> topSongs = new ArrayList<>();
+            for (Song song : catalog.getTopSongs(MAX_ALLOWED_ATTEMPTS)) {
+                topSongs.add(song.getName());
+            }
+            return topSongs;
+        });
     }
 
     /**
@@ -238,105 +458,129 @@ public final class Admin {
      * of likes from the songs in the albums
      */
     public List<String> getTop5Artist() {
-        List<User> artist = new ArrayList<>();
-        for (User user : users) {
-            if (user.getType() == Enums.userType.ARTIST) {
-                artist.add(user);
+        return shared(() -> {
+            List<String> topArtists = new ArrayList<>();
+            for (User user : catalog.getTopArtists(MAX_ALLOWED_ATTEMPTS)) {
+                topArtists.add(user.getName());
             }
-        }
-        List<User> sortedArtist = new ArrayList<>(artist);
-        sortedArtist.sort((artist1, artist2) -> {
-            int likes1 = calculateTotalLikesArtist(artist1);
-            int likes2 = calculateTotalLikesArtist(artist2);
-            return Integer.compare(likes2, likes1);
+            return topArtists;
         });
-        List<String> topArtists = new ArrayList<>();
-        int count = 0;
-        for (User user : sortedArtist) {
-            if (count >= MAX_ALLOWED_ATTEMPTS) {
-                break;
-            }
-            topArtists.add(user.getName());
-            count++;
-        }
-        return topArtists;
     }
 
     /**
-     * Used to calculate the total number of likes for a given artist , iterating through
-     * all albums and all songs from each album
-     * @param artist is the artists for whom we want to calculate the number of likes
-     * @return the total number of likes for the artist's songs
+     * Used to create a statistic: it displays the first 5 albums
+     * according to the number of likes in each one
+     * @return a list with the names of the 5 most appreciated ones.
      */
-    private static int calculateTotalLikesArtist(final User artist) {
-        int totalLikes = 0;
-        for (Album album : artist.getAlbums()) {
-            for (Song song : album.getSongs()) {
-                totalLikes += song.getLikes();
+    public static List<String> getTop5Albums() {
+        return getInstance().shared(() -> {
+            List<String> topAlbums = new ArrayList<>();
+            for (Album album : catalog.getTopAlbums(MAX_ALLOWED_ATTEMPTS)) {
+                topAlbums.add(album.getName());
             }
-        }
-        return totalLikes;
+            return topAlbums;
+        });
     }
 
     /**
-     * Used to create a statistic: it displays the first 5 albums
-     * according to the number of likes in each one
-     * @return a list with the names of the 5 most appreciated ones.
+     * Sort playlists by followers number.
+     * @return a list with the sorted names of the playlists.
      */
-    public static List<String> getTop5Albums() {
-    List<Album> albums = new ArrayList<>(Admin.getInstance().getAlbums());
-    albums.sort(
-            Comparator.<Album, Integer>comparing(album -> calculateTotalLikes(album))
-                    .reversed()
-                    .thenComparing(Album::getName)
-    );
-
-    List<String> topAlbums = new ArrayList<>();
-    int count = 0;
-    for (Album album : albums) {
-        if (count >= MAX_ALLOWED_ATTEMPTS) {
-            break;
-        }
-        topAlbums.add(album.getName());
-        count++;
+    public List<String> getTop5Playlists() {
+        return shared(() -> {
+            List<String> topPlaylists = new ArrayList<>();
+            for (Playlist playlist : catalog.getTopPlaylists(MAX_ALLOWED_ATTEMPTS)) {
+                topPlaylists.add(playlist.getName());
+            }
+            return topPlaylists;
+        });
     }
-    return topAlbums;
-}
 
     /**
-     * Used to calculate the number of likes for an album by collecting
-     * the number of likes for each individual song
-     * @param album is the album for which we want to perform the calculation
-     * @return the number of likes used for sorting
+     * @param song a song of the library
+     * @return the number of likes of the song
      */
+    public int getLikes(final Song song) {
+        return catalog.getLikes(song);
+    }
 
-    private static int calculateTotalLikes(final Album album) {
-        int totalLikes = 0;
-        for (Song song : album.getSongs()) {
-            totalLikes += song.getLikes();
-        }
-        return totalLikes;
+    /**
+     * @param playlist a playlist of a user
+     * @return the number of followers of the playlist
+     */
+    public int getFollowers(final Playlist playlist) {
+        return catalog.getFollowers(playlist);
     }
 
     /**
-     * Sort playlists by followers number.
-     * @return a list with the sorted names of the playlists.
+     * @return a number that changes whenever the likes of any song change
      */
-    public List<String> getTop5Playlists() {
-        List<Playlist> sortedPlaylists = new ArrayList<>(getPlaylists());
-        sortedPlaylists.sort(Comparator.comparingInt(Playlist::getFollowers)
-                .reversed()
-                .thenComparing(Playlist::getTimestamp, Comparator.naturalOrder()));
-        List<String> topPlaylists = new ArrayList<>();
-        int count = 0;
-        for (Playlist playlist : sortedPlaylists) {
-            if (count >= MAX_ALLOWED_ATTEMPTS) {
-                break;
-            }
-            topPlaylists.add(playlist.getName());
-            count++;
-        }
-        return topPlaylists;
+    public long getLikesVersion() {
+        return catalog.getLikesVersion();
+    }
+
+    /**
+     * Registers a like for a song and updates the song, album and artist rankings.
+     * @param user the user who liked the song
+     * @param song the liked song
+     */
+    public void likeSong(final User user, final Song song) {
+        sharedForUser(user, () -> {
+            catalog.addSongLikes(song, 1);
+            catalog.references().liked(user, song);
+        });
+    }
+
+    /**
+     * Takes back a like of a song and updates the song, album and artist rankings.
+     * @param user the user who unliked the song
+     * @param song the unliked song
+     */
+    public void dislikeSong(final User user, final Song song) {
+        sharedForUser(user, () -> {
+            catalog.addSongLikes(song, -1);
+            catalog.references().unliked(user, song);
+        });
+    }
+
+    /**
+     * Takes the given songs out of the liked songs of every user that liked them. The like
+     * counters of the songs are left as they are.
+     * @param songs the songs that leave the library
+     */
+    public void removeLikes(final Collection<Song> songs) {
+        exclusive(() -> {
+            for (Song song : songs) {
+                for (User user : catalog.references().getLikers(song)) {
+                    user.removeLikedSong(song);
+                }
+                catalog.references().forgetSong(song);
+            }
+        });
+    }
+
+    /**
+     * Adds a follower to a playlist and updates the playlist ranking.
+     * @param user the user who followed the playlist
+     * @param playlist the followed playlist
+     */
+    public void followPlaylist(final User user, final Playlist playlist) {
+        sharedForUser(user, () -> {
+            catalog.addPlaylistFollowers(playlist, 1);
+            catalog.references().followed(user, playlist);
+        });
+    }
+
+    /**
+     * Removes a follower from a playlist and updates the playlist ranking.
+     * @param user the user who unfollowed the playlist
+     * @param playlist the unfollowed playlist
+     */
+    public void unfollowPlaylist(final User user, final Playlist playlist) {
+        sharedForUser(user, () -> {
+            catalog.addPlaylistFollowers(playlist, -1);
+            catalog.references().unfollowed(user, playlist);
+        });
     }
 
     /**
@@ -344,13 +588,15 @@ public final class Admin {
      * @return a list with the names of all Online users
      */
     public List<String> getOnlineUsers() {
-        List<String> online = new ArrayList<>();
-        for (User user : users) {
-            if (user.getMode() == Enums.UserMode.ONLINE) {
-                online.add(user.getUsername());
+        return shared(() -> {
+            List<String> online = new ArrayList<>();
+            for (User user : catalog.users()) {
+                if (user.getMode() == Enums.UserMode.ONLINE) {
+                    online.add(user.getUsername());
+                }
             }
-        }
-        return online;
+            return online;
+        });
     }
 
     /**
@@ -359,23 +605,15 @@ public final class Admin {
      * @return a list this the names of all users from the system.
      */
     public List<String> getAllUsers() {
-        List<String> all = new ArrayList<>();
-        for (User user : users) {
-            if (user.getType() == Enums.userType.USER) {
-                all.add(user.getUsername());
-            }
-        }
-        for (User user : users) {
-            if (user.getType() == Enums.userType.ARTIST) {
-                all.add(user.getUsername());
-            }
-        }
-        for (User user : users) {
-            if (user.getType() == Enums.userType.HOST) {
-                all.add(user.getUsername());
+        return shared(() -> {
+            List<String> all = new ArrayList<>();
+            for (Enums.userType type : Enums.userType.values()) {
+                for (User user : catalog.usersOfType(type)) {
+                    all.add(user.getUsername());
+                }
             }
-        }
-        return all;
+            return all;
+        });
     }
 
     /**
@@ -385,28 +623,31 @@ public final class Admin {
      * @return a message indicating whether the user was successfully added
      */
     public String addUser(final CommandInput commandInput) {
-    for (User user : users) {
-        if (user.getUsername().equals(commandInput.getUsername())) {
-            return "The username " + user.getUsername() + " is already taken.";
-        }
+        return exclusive(() -> registerUser(commandInput));
+    }
+
+    private String registerUser(final CommandInput commandInput) {
+    User existing = catalog.getUser(commandInput.getUsername());
+    if (existing != null) {
+        return "The username " + existing.getUsername() + " is already taken.";
     }
             User newUser;
             if (commandInput.getType().equals("user")) {
                 newUser = new User(commandInput.getUsername(),
                         commandInput.getAge(), commandInput.getCity(), Enums.userType.USER);
-                users.add(newUser);
+                catalog.addUser(newUser);
             }
             if (commandInput.getType().equals("artist")) {
                 newUser = new User(commandInput.getUsername(), commandInput.getAge(),
                         commandInput.getCity(), Enums.userType.ARTIST);
                 newUser.setMode(Enums.UserMode.OFFLINE);
-                users.add(newUser);
+                catalog.addUser(newUser);
             }
             if (commandInput.getType().equals("host")) {
                 newUser = new User(commandInput.getUsername(), commandInput.getAge(),
                         commandInput.getCity(), Enums.userType.HOST);
                 newUser.setMode(Enums.UserMode.OFFLINE);
-                users.add(newUser);
+                catalog.addUser(newUser);
             }
             return "The username " + commandInput.getUsername() + " has been added successfully.";
 }
@@ -418,16 +659,13 @@ public final class Admin {
      * @return a message indicating whether the user was successfully deleted
      */
     public String deleteUser(final CommandInput commandInput) {
-        int ok = 0;
-        User foundUser = null;
-        for (User user : users) {
-            if (user.getUsername().equals(commandInput.getUsername())) {
-                // exists
-                ok = 1;
-                foundUser = user;
-            }
-        }
-    if (ok == 0) {
+        return exclusive(() -> unregisterUser(commandInput));
+    }
+
+    private String unregisterUser(final CommandInput commandInput) {
+        syncPlayers();
+        User foundUser = catalog.getUser(commandInput.getUsername());
+    if (foundUser == null) {
         return "The username " + commandInput.getUsername() + " doesn't exist.";
     } else {
         // user has on load a song from the artist's album. can t delete him
@@ -437,22 +675,20 @@ public final class Admin {
                 }
 
                 for (Album artistAlbum : foundUser.getAlbums()) {
-                    for (User user : users) {
+                    for (User user : catalog.references().getLoadedUsers()) {
                         if (isUserListeningToAlbum(user, artistAlbum)) {
                             return commandInput.getUsername() + " can't be deleted.";
                         }
                     }
                 }
-                for (User user : users) {
-                    if (user.isPageSetArtist()) {
-                        return commandInput.getUsername() + " can't be deleted.";
-                    }
+                if (catalog.references().anyOnArtistPage()) {
+                    return commandInput.getUsername() + " can't be deleted.";
                 }
             }
 
         if (foundUser.getType() == Enums.userType.HOST) {
             for (Podcast podcast : foundUser.getPodcastsHost()) {
-                    for (User user : users) {
+                    for (User user : catalog.references().getLoadedUsers()) {
                         if (isUserListeningToPodcast(user, podcast)) {
                             return commandInput.getUsername() + " can't be deleted.";
                         }
@@ -463,10 +699,8 @@ public final class Admin {
                 return commandInput.getUsername() + " can't be deleted.";
             }
            //Is host, we check if somebody is on its page
-           for (User user : users) {
-               if (user.isPageSetHost()) {
-                   return commandInput.getUsername() + " can't be deleted.";
-               }
+           if (catalog.references().anyOnHostPage()) {
+               return commandInput.getUsername() + " can't be deleted.";
            }
         }
 
@@ -477,7 +711,7 @@ public final class Admin {
                 return commandInput.getUsername() + " can't be deleted.";
             }
         for (Playlist playlistUser : foundUser.getPlaylists()) {
-            for (User user : users) {
+            for (User user : catalog.references().getLoadedUsers()) {
                 if (isUserListeningToPlaylist(user, playlistUser)) {
                     return commandInput.getUsername() + " can't be deleted.";
                 }
@@ -487,47 +721,29 @@ public final class Admin {
 
         // If it's an artist we delete the album and the songs
 
-        List<Song> songsWithoutOwner = new ArrayList<>();
+        catalog.removeSongs(catalog.getSongsByArtist(foundUser.getUsername()));
 
-        for (Song song : songs) {
-            if (song.getArtist().equals(foundUser.getUsername())) {
-                songsWithoutOwner.add(song);
-            }
-        }
-        songs.removeAll(songsWithoutOwner);
-        Admin.getInstance().updateSongList(songs);
-
-        List<Song> remove = new ArrayList<>();
-        for (User user : users) {
-            Iterator<Song> iterator = user.getLikedSongs().iterator();
-            while (iterator.hasNext()) {
-                Song song = iterator.next();
-                if (song.getArtist().equals(foundUser.getUsername())) {
-                    remove.add(song);
-                    iterator.remove();
-                }
-            }
-        }
-        songs.removeAll(remove);
-        Admin.getInstance().updateSongList(songs);
-
-        for (User user : users) {
-            Iterator<Playlist> iterator = user.getFollowedPlaylists().iterator();
-            while (iterator.hasNext()) {
-                Playlist playlist = iterator.next();
-                if (playlist.getOwner().equals(foundUser.getUsername())) {
-                    iterator.remove();
-                }
+        // Only the users found in the reverse indexes can reference what goes away.
+        List<Song> remove = catalog.references().getLikedSongsByArtist(foundUser.getUsername());
+        removeLikes(remove);
+        catalog.removeSongs(remove);
+
+        for (Playlist playlist
+                : catalog.references().getFollowedPlaylistsByOwner(foundUser.getUsername())) {
+            for (User user : catalog.references().getFollowers(playlist)) {
+                user.getFollowedPlaylists().remove(playlist);
+                user.contentChanged();
             }
+            catalog.references().forgetPlaylist(playlist);
         }
         for (Playlist playlist : foundUser.getFollowedPlaylists()) {
-            playlist.setFollowers(playlist.getFollowers() - 1);
+            unfollowPlaylist(foundUser, playlist);
         }
 
         for (Song song : foundUser.getLikedSongs()) {
-            song.setLikes(song.getLikes() - 1);
+            dislikeSong(foundUser, song);
         }
-        users.remove(foundUser);
+        catalog.removeUser(foundUser);
 
         return commandInput.getUsername() + " was successfully deleted.";
 
@@ -542,7 +758,7 @@ public final class Admin {
      * @return true or false
      */
     public static boolean isListening() {
-    for (User user : users) {
+    for (User user : catalog.references().getLoadedUsers()) {
         if (!Objects.equals(user.getPlayerStats().getName(), "")) {
             return true;
         }
@@ -636,12 +852,13 @@ public final class Admin {
      * @return true or false depending on whether the user interacts with the playlist or not.
      */
     public static boolean isListeningToPlaylist(final ArrayList<Playlist> playlistArrayList) {
-        for (User user : users) {
+        List<User> loaded = catalog.references().getLoadedUsers();
+        for (User user : loaded) {
             if (user.getPlayer().getSource() != null
                     && user.getPlayer().getSource().getAudioCollection() != null) {
                 for (Playlist playlist : playlistArrayList) {
                     for (Song song : playlist.getSongs()) {
-                        for (User user1 : users) {
+                        for (User user1 : loaded) {
                             if (isUserListeningToSong(user1, song)) {
                                 return true;
                             }
@@ -658,12 +875,13 @@ public final class Admin {
      * @return true or false depending on whether the user interacts with the podcasts or not.
      */
     public static boolean isListeningToPodcast(final ArrayList<Podcast> podcastsArraylist) {
-        for (User user : users) {
+        List<User> loaded = catalog.references().getLoadedUsers();
+        for (User user : loaded) {
             if (user.getPlayer().getSource() != null
                     && user.getPlayer().getSource().getAudioCollection() != null) {
                 for (Podcast podcast : podcastsArraylist) {
                     for (Episode episode : podcast.getEpisodes()) {
-                        for (User user1 : users) {
+                        for (User user1 : loaded) {
                             if (isUserListeningToEpisode(user1, episode)) {
                                 return true;
                             }
@@ -688,22 +906,17 @@ public final class Admin {
     public String addPodcast(final CommandInput commandInput,
                                     final String name, final String owner,
                                     final ArrayList<EpisodeInput> episodes) {
-    int ok = 0;
-    User found = null;
-        for (User user : users) {
-            if (commandInput.getUsername().equals(user.getUsername())) {
-                ok = 1;
-                found = user;
-            }
-        }
-        if (ok == 0) {
+        return exclusive(() -> registerPodcast(commandInput, name, owner, episodes));
+    }
+
+    private String registerPodcast(final CommandInput commandInput, final String name,
+                                   final String owner, final ArrayList<EpisodeInput> episodes) {
+        User found = catalog.getUser(commandInput.getUsername());
+        if (found == null) {
             return "The username" + commandInput.getUsername() + " doesn't exist.";
         } else {
             if (found.getType() == Enums.userType.HOST) {
-                if (podcasts.stream().anyMatch(podcast -> {
-                    String podcastName = podcast.getName();
-                    return podcastName != null && podcastName.equals(name);
-                })) {
+                if (catalog.hasPodcastNamed(name)) {
                     return found.getUsername() + " has another podcast with the same name.";
                 }
                 // We add the episodes too.
@@ -716,8 +929,9 @@ public final class Admin {
                 }
                 if (found.getPodcastsHost() != null) {
                     found.getPodcastsHost().add(new Podcast(name, owner, episode));
+                    found.contentChanged();
                 }
-                podcasts.add(new Podcast(name, owner, episode));
+                catalog.addPodcast(new Podcast(name, owner, episode));
                 return found.getUsername() + " has added new podcast successfully.";
             } else {
             return found.getUsername() + " is not a host.";
@@ -731,16 +945,14 @@ public final class Admin {
      * @return a message indicating whether the podcast was successfully deleted or not.
      */
     public String removePodcast(final CommandInput commandInput) {
-
-    int ok = 0;
-    User found = null;
-    for (User user : users) {
-        if (commandInput.getUsername().equals(user.getUsername())) {
-            ok = 1;
-            found = user;
-        }
+        return exclusive(() -> unregisterPodcast(commandInput));
     }
-    if (ok == 0) {
+
+    private String unregisterPodcast(final CommandInput commandInput) {
+    syncPlayers();
+
+    User found = catalog.getUser(commandInput.getUsername());
+    if (found == null) {
         return "The username" + commandInput.getUsername() + " doesn't exist.";
     } else {
         if (found.getType() == Enums.userType.HOST) {
@@ -758,7 +970,7 @@ public final class Admin {
                 return found.getUsername() + " doesn't have a podcast with the given name.";
             }
             boolean loadedByNormalUser = false;
-            for (User user : users) {
+            for (User user : catalog.references().getLoadedUsers()) {
                 if (user.getPlayer().getCurrentAudioFile() != null
     && user.getPlayer().getSource().getAudioCollection().matchesName(podcastToRemove.getName())) {
                     loadedByNormalUser = true;
@@ -773,7 +985,8 @@ public final class Admin {
                     found.getEpisodesHost().remove(episodeToRemove);
                 }
                 found.getPodcastsHost().remove(podcastToRemove);
-                podcasts.remove(podcastToRemove);
+                found.contentChanged();
+                catalog.removePodcast(podcastToRemove);
                 return found.getUsername() + " deleted the podcast successfully.";
             }
         } else {
@@ -782,13 +995,51 @@ public final class Admin {
     }
 }
 
+    /**
+     * Writes the whole state to a checkpoint file (see Checkpoint). The running commands are
+     * waited for and no other command runs while the checkpoint is written.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCheckpoint(final Path path) throws IOException {
+        exclusiveLock().lock();
+        try {
+            new Checkpoint(catalog, timestamp).write(path);
+        } finally {
+            exclusiveLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole state with the one saved in a checkpoint file. The file is read
+     * before the state is touched, so the state is left as it was if it cannot be read.
+     * The shared song details start over once the checkpoint is restored.
+     * @param path the file to read
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public void restoreCheckpoint(final Path path) throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(path);
+        exclusiveLock().lock();
+        try {
+            catalog = checkpoint.getCatalog();
+            timestamp = checkpoint.getTimestamp();
+            StringInterner.SONG_DETAILS.clear();
+        } finally {
+            exclusiveLock().unlock();
+        }
+    }
+
     /**
      * Used to reset all important Lists of users, songs, podcasts and also the timestamp.
      */
     public void reset() {
-        users = new ArrayList<>();
-        songs = new ArrayList<>();
-        podcasts = new ArrayList<>();
-        timestamp = 0;
+        exclusiveLock().lock();
+        try {
+            catalog = new Catalog();
+            timestamp = 0;
+            StringInterner.SONG_DETAILS.clear();
+        } finally {
+            exclusiveLock().unlock();
+        }
     }
 }
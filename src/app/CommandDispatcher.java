@@ -0,0 +1,226 @@
+package app;
+
+import app.user.User;
+import fileio.input.CommandInput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Table of all the commands. Every command name is registered once with its handler and
+ * gets a numeric id, which indexes the handlers and the per-command statistics.
+ * Dispatching a command moves the time forward, resolves the user of the command once,
+ * runs the handler and counts how many times every command ran and how long it took.
+ */
+public final class CommandDispatcher {
+    /**
+     * What a command may touch, which decides whether it can run at the same time as the
+     * commands of other users.
+     */
+    public enum Scope {
+        /**
+         * Changes only the user running it, and only reads things that USER commands
+         * never change.
+         */
+        USER,
+        /**
+         * Changes or reads state shared between users; it runs alone.
+         */
+        GLOBAL
+    }
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new CopyOnWriteArrayList<>();
+    private static final List<CommandHandler> HANDLERS = new CopyOnWriteArrayList<>();
+    private static final List<Scope> SCOPES = new CopyOnWriteArrayList<>();
+    private static volatile AtomicLongArray counts;
+    private static volatile AtomicLongArray nanos;
+
+    static {
+        register("search", Scope.USER, CommandRunner::search);
+        register("select", Scope.USER, CommandRunner::select);
+        register("load", Scope.USER, CommandRunner::load);
+        register("playPause", Scope.USER, CommandRunner::playPause);
+        register("repeat", Scope.USER, CommandRunner::repeat);
+        register("shuffle", Scope.USER, CommandRunner::shuffle);
+        register("forward", Scope.USER, CommandRunner::forward);
+        register("backward", Scope.USER, CommandRunner::backward);
+        // Likes and follows change counters that the USER commands of others read.
+        register("like", Scope.GLOBAL, CommandRunner::like);
+        register("next", Scope.USER, CommandRunner::next);
+        register("prev", Scope.USER, CommandRunner::prev);
+        register("createPlaylist", Scope.GLOBAL, CommandRunner::createPlaylist);
+        register("addRemoveInPlaylist", Scope.GLOBAL, CommandRunner::addRemoveInPlaylist);
+        register("switchVisibility", Scope.GLOBAL, CommandRunner::switchVisibility);
+        register("showPlaylists", Scope.USER, CommandRunner::showPlaylists);
+        register("follow", Scope.GLOBAL, CommandRunner::follow);
+        register("status", Scope.USER, CommandRunner::status);
+        register("showPreferredSongs", Scope.USER, CommandRunner::showLikedSongs);
+        register("getPreferredGenre", Scope.USER, CommandRunner::getPreferredGenre);
+        register("getTop5Songs", Scope.GLOBAL, CommandRunner::getTop5Songs);
+        register("getTop5Playlists", Scope.GLOBAL, CommandRunner::getTop5Playlists);
+        register("getTop5Albums", Scope.GLOBAL, CommandRunner::getTop5Albums);
+        register("switchConnectionStatus", Scope.USER, CommandRunner::switchConnectionStatus);
+        register("getOnlineUsers", Scope.GLOBAL, CommandRunner::getOnlineUsers);
+        register("addUser", Scope.GLOBAL, CommandRunner::addUser);
+        register("addAlbum", Scope.GLOBAL, CommandRunner::addAlbum);
+        register("removeAlbum", Scope.GLOBAL, CommandRunner::removeAlbum);
+        register("showAlbums", Scope.USER, CommandRunner::showAlbums);
+        register("addEvent", Scope.GLOBAL, CommandRunner::addEvent);
+        register("removeEvent", Scope.GLOBAL, CommandRunner::removeEvent);
+        register("printCurrentPage", Scope.USER, CommandRunner::printCurrentPage);
+        register("getAllUsers", Scope.GLOBAL, CommandRunner::getAllUsers);
+        register("deleteUser", Scope.GLOBAL, CommandRunner::deleteUser);
+        register("addMerch", Scope.GLOBAL, CommandRunner::addMerch);
+        register("addAnnouncement", Scope.GLOBAL, CommandRunner::addAnnouncement);
+        register("removeAnnouncement", Scope.GLOBAL, CommandRunner::removeAnnouncement);
+        register("addPodcast", Scope.GLOBAL, CommandRunner::addPodcast);
+        register("removePodcast", Scope.GLOBAL, CommandRunner::removePodcast);
+        register("showPodcasts", Scope.USER, CommandRunner::showPodcasts);
+        register("changePage", Scope.USER, CommandRunner::changePage);
+        register("getTop5Artists", Scope.GLOBAL, CommandRunner::getTop5Artists);
+    }
+
+    private CommandDispatcher() {
+    }
+
+    /**
+     * Adds a command to the table. A name that is already registered gets the new handler.
+     * @param name the name of the command, as it appears in the input
+     * @param scope what the command may touch
+     * @param handler the handler that runs the command
+     */
+    public static synchronized void register(final String name, final Scope scope,
+                                             final CommandHandler handler) {
+        Integer id = IDS.get(name);
+        if (id != null) {
+            HANDLERS.set(id, handler);
+            SCOPES.set(id, scope);
+            return;
+        }
+        IDS.put(name, HANDLERS.size());
+        NAMES.add(name);
+        HANDLERS.add(handler);
+        SCOPES.add(scope);
+        resetStatistics();
+    }
+
+    /**
+     * @param name the name of a command
+     * @return the id of the command, or -1 if there is no such command
+     */
+    public static int idOf(final String name) {
+        Integer id = name == null ? null : IDS.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param commandInput a command
+     * @return true if the command only touches the user running it (see Scope.USER);
+     * unknown commands are not
+     */
+    public static boolean isUserScoped(final CommandInput commandInput) {
+        int id = idOf(commandInput.getCommand());
+        return id >= 0 && SCOPES.get(id) == Scope.USER;
+    }
+
+    /**
+     * Runs a command at its timestamp, taking the locks its scope needs (see Admin for the
+     * consistency model). Can be called from any thread.
+     * @param commandInput the command to run
+     * @return the output of the command, or null for an unknown command
+     */
+    public static CommandOutput dispatch(final CommandInput commandInput) {
+        int id = idOf(commandInput.getCommand());
+        if (id >= 0 && SCOPES.get(id) == Scope.USER) {
+            return dispatchForUser(commandInput);
+        }
+
+        Lock exclusive = Admin.getInstance().exclusiveLock();
+        exclusive.lock();
+        try {
+            Admin.getInstance().updateTimestamp(commandInput.getTimestamp());
+            if (id < 0) {
+                System.out.println("Invalid command " + commandInput.getCommand());
+                return null;
+            }
+            return run(id, commandInput);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Runs a USER command under the shared lock and the lock of its user, so that the
+     * commands of different users can run at the same time. The global time only moves
+     * with GLOBAL commands; the user running the command is brought up to the timestamp
+     * of the command.
+     * @param commandInput a command for which isUserScoped is true
+     * @return the output of the command
+     */
+    public static CommandOutput dispatchForUser(final CommandInput commandInput) {
+        Lock shared = Admin.getInstance().sharedLock();
+        Lock userLock = Admin.getInstance().userLock(commandInput.getUsername());
+        shared.lock();
+        try {
+            userLock.lock();
+            try {
+                return run(idOf(commandInput.getCommand()), commandInput);
+            } finally {
+                userLock.unlock();
+            }
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private static CommandOutput run(final int id, final CommandInput commandInput) {
+        User user = Admin.getInstance().getUser(commandInput.getUsername());
+        if (user != null) {
+            user.syncTime(commandInput.getTimestamp());
+        }
+        commandInput.setUser(user);
+
+        long start = System.nanoTime();
+        CommandOutput output = HANDLERS.get(id).handle(commandInput);
+        nanos.addAndGet(id, System.nanoTime() - start);
+        counts.incrementAndGet(id);
+        return output;
+    }
+
+    /**
+     * Describes how many times every command ran and how long it took, slowest first,
+     * since the statistics were last reset.
+     * @return one line for every command that ran
+     */
+    public static List<String> statistics() {
+        List<Integer> ran = new ArrayList<>();
+        for (int id = 0; id < counts.length(); id++) {
+            if (counts.get(id) > 0) {
+                ran.add(id);
+            }
+        }
+        ran.sort((first, second) -> Long.compare(nanos.get(second), nanos.get(first)));
+
+        List<String> lines = new ArrayList<>();
+        for (int id : ran) {
+            lines.add("%s: %d runs, %.3f ms".formatted(NAMES.get(id), counts.get(id),
+                    nanos.get(id) / NANOS_PER_MILLI));
+        }
+        return lines;
+    }
+
+    /**
+     * Clears the per-command statistics.
+     */
+    public static void resetStatistics() {
+        counts = new AtomicLongArray(HANDLERS.size());
+        nanos = new AtomicLongArray(HANDLERS.size());
+    }
+}
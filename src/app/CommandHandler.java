@@ -0,0 +1,16 @@
+package app;
+
+import fileio.input.CommandInput;
+
+/**
+ * Runs one kind of command. The user named by the command is already resolved and attached
+ * to it (see CommandInput.getUser) when the handler is called.
+ */
+@FunctionalInterface
+public interface CommandHandler {
+    /**
+     * @param commandInput the command to run
+     * @return the output of the command
+     */
+    CommandOutput handle(CommandInput commandInput);
+}
@@ -0,0 +1,481 @@
+package app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fileio.input.CommandInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead log of the commands of a replay, so a replay that dies can go on from where
+ * it stopped instead of starting over.
+ * <p>
+ * Every command is appended to the log before it runs. From time to time the whole state is
+ * saved in a checkpoint (see Checkpoint), together with how far the output file got (see
+ * ReplayOutput), after which the log before it is dropped. Recovery restores the latest
+ * checkpoint, cuts the output file back to its position and runs again only the commands
+ * logged after it, writing their outputs again.
+ * <p>
+ * The log is a directory of segment files, named after the sequence number of their first
+ * command; a new segment is started at every checkpoint and whenever a segment grows past
+ * SEGMENT_SIZE. A record is the length of the command, a CRC32 of the sequence number and
+ * the command, the sequence number and the command as JSON: the very bytes it had in the
+ * input (see RecordingInputStream), so logging a command costs a copy. Records are written
+ * in groups, so the commands never wait for the disk: append only fills a buffer, and a
+ * syncer thread writes the buffer and forces it to disk every GROUP_DELAY_MILLIS, or sooner
+ * once it holds GROUP_BYTES. Only if the disk falls MAX_BACKLOG behind does append write
+ * the buffer itself. A crash loses at most the commands of the last group. Recovery stops
+ * at the first record that is incomplete or fails its CRC, and cuts the log there.
+ */
+public final class CommandLog implements Closeable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".bin";
+    private static final String OUTPUT_PREFIX = "output-";
+    private static final String OUTPUT_SUFFIX = ".pos";
+    private static final int OUTPUT_SIZE = Long.BYTES + Long.BYTES;
+    private static final String SEQUENCE_FORMAT = "%020d";
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long SEGMENT_SIZE = 64L << 20;
+    private static final int GROUP_BYTES = 1 << 20;
+    private static final long GROUP_DELAY_MILLIS = 50;
+    private static final int MAX_BACKLOG = 16 << 20;
+    private static final int MAX_RECORD = 64 << 20;
+
+    private final Path directory;
+    private final CRC32 crc = new CRC32();
+    private final Object io = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel segment;
+    private long segmentSize;
+    private long sequence;
+    private Thread syncer;
+    private boolean closed;
+    private volatile IOException failure;
+
+    private CommandLog(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the log kept in the given directory, creating the directory if needed. Call
+     * restore and replay before appending anything.
+     * @param directory the directory of the log
+     * @return the log
+     * @throws IOException if the directory cannot be created
+     */
+    public static CommandLog open(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new CommandLog(directory);
+    }
+
+    /**
+     * Restores the latest checkpoint, the first step of recovery. Without a checkpoint the
+     * state is left as it is, and must then be the state the log started from.
+     * @return the position of the output file at the restored checkpoint, where the output
+     * goes on from, or Position.START without a checkpoint
+     * @throws IOException if the log cannot be read
+     */
+    public ReplayOutput.Position restore() throws IOException {
+        sequence = 0;
+        List<Long> checkpoints = sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        Collections.reverse(checkpoints);
+        for (long checkpoint : checkpoints) {
+            try {
+                ReplayOutput.Position output = readOutputPosition(checkpoint);
+                Admin.getInstance().restoreCheckpoint(checkpointPath(checkpoint));
+                sequence = checkpoint;
+                return output;
+            } catch (IOException e) {
+                // A damaged checkpoint: try the one before it.
+            }
+        }
+        return ReplayOutput.Position.START;
+    }
+
+    /**
+     * Runs again the commands logged after the restored checkpoint, the second step of
+     * recovery, which brings the state back to where the log ends. The log can then be
+     * appended to.
+     * @param replayer runs every logged command, and writes its output
+     * @return how many commands of the replay are covered, so the replay goes on with the
+     * command at this position
+     * @throws IOException if the log cannot be read
+     */
+    public long replay(final Replayer replayer) throws IOException {
+        List<Long> segments = sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        boolean clean = true;
+        for (int i = 0; i < segments.size(); i++) {
+            if (!clean) {
+                Files.delete(segmentPath(segments.get(i)));
+            } else {
+                clean = replay(segmentPath(segments.get(i)), replayer);
+            }
+        }
+        if (clean && !segments.isEmpty()) {
+            Path last = segmentPath(segments.get(segments.size() - 1));
+            segment = FileChannel.open(last, StandardOpenOption.WRITE);
+            segmentSize = segment.size();
+            segment.position(segmentSize);
+        } else {
+            startSegment();
+        }
+        startSyncer();
+        return sequence;
+    }
+
+    /**
+     * Runs again the commands of a segment that come after the current sequence number.
+     * @return false if the segment ends with a damaged record; it is cut before it
+     */
+    private boolean replay(final Path path, final Replayer replayer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long position = 0;
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header, position)) {
+                    return cut(channel, position);
+                }
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                long recordSequence = header.getLong();
+                if (length < 0 || length > MAX_RECORD) {
+                    return cut(channel, position);
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                if (!readFully(channel, payload, position + HEADER_SIZE)
+                        || checksum(recordSequence, payload.array(), 0, length) != checksum
+                        || recordSequence > sequence) {
+                    return cut(channel, position);
+                }
+                if (recordSequence == sequence) {
+                    replayer.replay(MAPPER.readValue(payload.array(), CommandInput.class));
+                    sequence++;
+                }
+                position += HEADER_SIZE + length;
+            }
+        }
+    }
+
+    private static boolean readFully(final FileChannel channel, final ByteBuffer target,
+                                     final long position) throws IOException {
+        long at = position;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, at);
+            if (read < 0) {
+                return false;
+            }
+            at += read;
+        }
+        return true;
+    }
+
+    /**
+     * Drops what follows the last good record of a segment.
+     * @return true if the segment ended cleanly, false if something had to be dropped
+     */
+    private static boolean cut(final FileChannel channel, final long position)
+            throws IOException {
+        if (position == channel.size()) {
+            return true;
+        }
+        channel.truncate(position);
+        channel.force(true);
+        return false;
+    }
+
+    /**
+     * Appends a command that is about to run. The command only goes to a buffer; the syncer
+     * thread writes and forces it with the rest of its group.
+     * @param json holds the command as JSON, exactly as it was read from the input
+     * @param offset where the command starts in json
+     * @param length the length of the command
+     * @throws IOException if the log cannot be written
+     */
+    public void append(final byte[] json, final int offset, final int length)
+            throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        int size = HEADER_SIZE + length;
+        boolean behind;
+        synchronized (this) {
+            if (pending.remaining() < size) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                        pending.position() + size));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            pending.putInt(length);
+            pending.putInt(checksum(sequence, json, offset, length));
+            pending.putLong(sequence);
+            pending.put(json, offset, length);
+            if (pending.position() >= GROUP_BYTES) {
+                notifyAll();
+            }
+            behind = pending.position() >= MAX_BACKLOG;
+        }
+        sequence++;
+        segmentSize += size;
+
+        if (segmentSize >= SEGMENT_SIZE) {
+            synchronized (io) {
+                sync();
+                segment.close();
+                startSegment();
+            }
+        } else if (behind) {
+            sync();
+        }
+    }
+
+    /**
+     * @param every how many commands may run between two checkpoints
+     * @return true if that many commands were appended since the last checkpoint
+     */
+    public boolean needsCheckpoint(final long every) {
+        return every > 0 && sequence > 0 && sequence % every == 0;
+    }
+
+    /**
+     * Saves the state, which must include every appended command and nothing else, in a
+     * checkpoint, with the position of the output file, which must hold the outputs of
+     * exactly those commands. The log and the checkpoints before it are no longer needed
+     * and are deleted.
+     * @param output the synced position of the output file
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint(final ReplayOutput.Position output) throws IOException {
+        synchronized (io) {
+            sync();
+            writeOutputPosition(sequence, output);
+            Admin.getInstance().writeCheckpoint(checkpointPath(sequence));
+            segment.close();
+            startSegment();
+        }
+        for (long old : sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (old < sequence) {
+                Files.delete(segmentPath(old));
+            }
+        }
+        for (long old : sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX)) {
+            if (old < sequence) {
+                Files.delete(checkpointPath(old));
+            }
+        }
+        for (long old : sequences(OUTPUT_PREFIX, OUTPUT_SUFFIX)) {
+            if (old < sequence) {
+                Files.delete(outputPath(old));
+            }
+        }
+    }
+
+    /**
+     * Saves the position of the output file at a checkpoint. It is written before the
+     * checkpoint and moved in place at once, so every checkpoint has its position.
+     */
+    private void writeOutputPosition(final long covered, final ReplayOutput.Position output)
+            throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(OUTPUT_SIZE);
+        bytes.putLong(output.getBytes());
+        bytes.putLong(output.getOutputs());
+        Path target = outputPath(covered);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ReplayOutput.Position readOutputPosition(final long covered) throws IOException {
+        byte[] bytes = Files.readAllBytes(outputPath(covered));
+        if (bytes.length != OUTPUT_SIZE) {
+            throw new IOException("Damaged output position " + outputPath(covered));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new ReplayOutput.Position(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Writes the appended commands and forces them to disk.
+     * @throws IOException if the log cannot be written
+     */
+    public void sync() throws IOException {
+        synchronized (io) {
+            synchronized (this) {
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+            }
+            writing.flip();
+            while (writing.hasRemaining()) {
+                segment.write(writing);
+            }
+            writing.clear();
+            segment.force(false);
+        }
+    }
+
+    /**
+     * Deletes the log once the replay is complete, so the next replay starts over. What is
+     * still buffered is dropped without being written.
+     * @throws IOException if the files cannot be deleted
+     */
+    public void delete() throws IOException {
+        stopSyncer();
+        if (segment != null) {
+            segment.close();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopSyncer();
+        if (segment != null && segment.isOpen()) {
+            sync();
+            segment.close();
+        }
+    }
+
+    private void stopSyncer() {
+        if (syncer != null) {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                syncer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            syncer = null;
+        }
+    }
+
+    /**
+     * The body of the syncer thread: syncs the log every GROUP_DELAY_MILLIS, or when append
+     * wakes it up with a full group, until it is closed. It waits on the monitor instead of
+     * being interrupted, because an interrupt would close the channel it is writing to.
+     */
+    private void syncPeriodically() {
+        while (true) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    wait(GROUP_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            try {
+                sync();
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+        }
+    }
+
+    private void startSyncer() {
+        syncer = new Thread(this::syncPeriodically, "command-log-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    private void startSegment() throws IOException {
+        segment = FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    private int checksum(final long recordSequence, final byte[] payload, final int offset,
+                         final int length) {
+        crc.reset();
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            crc.update((int) (recordSequence >>> shift));
+        }
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private List<Long> sequences(final String prefix, final String suffix) throws IOException {
+        List<Long> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    found.add(Long.parseLong(name.substring(prefix.length(),
+                            name.length() - suffix.length())));
+                }
+            }
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    private Path segmentPath(final long first) {
+        return directory.resolve(SEGMENT_PREFIX + String.format(SEQUENCE_FORMAT, first)
+                + SEGMENT_SUFFIX);
+    }
+
+    private Path outputPath(final long covered) {
+        return directory.resolve(OUTPUT_PREFIX + String.format(SEQUENCE_FORMAT, covered)
+                + OUTPUT_SUFFIX);
+    }
+
+    private Path checkpointPath(final long covered) {
+        return directory.resolve(CHECKPOINT_PREFIX + String.format(SEQUENCE_FORMAT, covered)
+                + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Runs a command of the log again during recovery.
+     */
+    @FunctionalInterface
+    public interface Replayer {
+        /**
+         * @param command the logged command
+         * @throws IOException if its output cannot be written
+         */
+        void replay(CommandInput command) throws IOException;
+    }
+}
@@ -0,0 +1,176 @@
+package app;
+
+import app.player.PlayerStats;
+import app.utils.JsonWritable;
+import com.fasterxml.jackson.core.JsonGenerator;
+import fileio.input.CommandInput;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The output of a command. It keeps the values the command produced and writes them
+ * straight to the output generator, so no tree is built and nothing goes through the
+ * reflection of the object mapper. The values must not change once the command returned;
+ * every command gives freshly built lists.
+ * An output starts with the name of the command, the user (left out by the statistics,
+ * and written first by printCurrentPage) and the timestamp, followed by the fields of the
+ * command, in the same order and with the same values as the trees written before.
+ */
+public final class CommandOutput implements JsonWritable {
+    private enum Header {
+        COMMAND_USER,
+        USER_COMMAND,
+        COMMAND
+    }
+
+    /**
+     * Writes the fields that follow the header.
+     */
+    @FunctionalInterface
+    private interface Fields {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private final Header header;
+    private final String command;
+    private final String user;
+    private final Integer timestamp;
+    private final Fields fields;
+
+    private CommandOutput(final Header header, final CommandInput commandInput,
+                          final Fields fields) {
+        this.header = header;
+        this.command = commandInput.getCommand();
+        this.user = commandInput.getUsername();
+        this.timestamp = commandInput.getTimestamp();
+        this.fields = fields;
+    }
+
+    /**
+     * @param commandInput the command
+     * @param message the message of the command
+     * @return an output with the message
+     */
+    public static CommandOutput message(final CommandInput commandInput,
+                                        final String message) {
+        return new CommandOutput(Header.COMMAND_USER, commandInput,
+                generator -> generator.writeStringField("message", message));
+    }
+
+    /**
+     * @param commandInput the command
+     * @param message the message of the command
+     * @return an output with the message, with the user before the name of the command
+     */
+    public static CommandOutput pageMessage(final CommandInput commandInput,
+                                            final String message) {
+        return new CommandOutput(Header.USER_COMMAND, commandInput,
+                generator -> generator.writeStringField("message", message));
+    }
+
+    /**
+     * @param commandInput the search command
+     * @param message the message of the search
+     * @param results the names of the results
+     * @return an output with the message and the results
+     */
+    public static CommandOutput search(final CommandInput commandInput, final String message,
+                                       final List<String> results) {
+        return new CommandOutput(Header.COMMAND_USER, commandInput, generator -> {
+            generator.writeStringField("message", message);
+            JsonWritable.writeStrings(generator, "results", results);
+        });
+    }
+
+    /**
+     * @param commandInput the command
+     * @param names the names the command lists
+     * @return an output with the names as result
+     */
+    public static CommandOutput names(final CommandInput commandInput,
+                                      final List<String> names) {
+        return new CommandOutput(Header.COMMAND_USER, commandInput,
+                generator -> JsonWritable.writeStrings(generator, "result", names));
+    }
+
+    /**
+     * @param commandInput the command
+     * @param text the text the command gives, or null
+     * @return an output with the text as result
+     */
+    public static CommandOutput text(final CommandInput commandInput, final String text) {
+        return new CommandOutput(Header.COMMAND_USER, commandInput,
+                generator -> generator.writeStringField("result", text));
+    }
+
+    /**
+     * @param commandInput the command
+     * @param entries the entries the command lists
+     * @return an output with the entries as result
+     */
+    public static CommandOutput entries(final CommandInput commandInput,
+                                        final List<? extends JsonWritable> entries) {
+        return new CommandOutput(Header.COMMAND_USER, commandInput, generator -> {
+            generator.writeArrayFieldStart("result");
+            for (JsonWritable entry : entries) {
+                entry.write(generator);
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    /**
+     * @param commandInput the statistics command
+     * @param names the names the statistic lists
+     * @return an output with the names as result and without the user
+     */
+    public static CommandOutput statistic(final CommandInput commandInput,
+                                          final List<String> names) {
+        return new CommandOutput(Header.COMMAND, commandInput,
+                generator -> JsonWritable.writeStrings(generator, "result", names));
+    }
+
+    /**
+     * @param commandInput the status command
+     * @param stats the state of the player, or null
+     * @return an output with the stats
+     */
+    public static CommandOutput stats(final CommandInput commandInput,
+                                      final PlayerStats stats) {
+        return new CommandOutput(Header.COMMAND_USER, commandInput, generator -> {
+            generator.writeFieldName("stats");
+            if (stats == null) {
+                generator.writeNull();
+            } else {
+                stats.write(generator);
+            }
+        });
+    }
+
+    @Override
+    public void write(final JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        switch (header) {
+            case USER_COMMAND:
+                generator.writeStringField("user", user);
+                generator.writeStringField("command", command);
+                break;
+            case COMMAND:
+                generator.writeStringField("command", command);
+                break;
+            default:
+                generator.writeStringField("command", command);
+                generator.writeStringField("user", user);
+                break;
+        }
+        generator.writeFieldName("timestamp");
+        if (timestamp == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(timestamp);
+        }
+        fields.write(generator);
+        generator.writeEndObject();
+    }
+}
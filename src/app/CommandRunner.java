@@ -7,19 +7,12 @@ import app.player.PlayerStats;
 import app.searchBar.Filters;
 import app.user.User;
 import app.utils.Enums;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import fileio.input.CommandInput;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public final class CommandRunner {
-    /**
-     * The Object mapper.
-     */
-    private static ObjectMapper objectMapper = new ObjectMapper();
-
     private CommandRunner() {
     }
     /**
@@ -29,8 +22,8 @@ public final class CommandRunner {
      * @return a message that includes the number of results that satisfy the searches
      * and the list of their names.
      */
-    public static ObjectNode search(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput search(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         Filters filters = new Filters(commandInput.getFilters());
         String type = commandInput.getType();
 
@@ -49,29 +42,22 @@ public final class CommandRunner {
             message = "Search returned " + 0 + " results";
         }
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        objectNode.put("results", objectMapper.valueToTree(results));
-
-        return objectNode;
+        return CommandOutput.search(commandInput, message, results);
     }
 
     /**
      * Used to select an item that was previously searched by user
      * @param commandInput used to know the name of the command and the id
      *                     for the selected number
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      * select operation:
      *   - "command": the name of the command
      *    - "user": the name of the user
      *    - "timestamp": timestamp of the command
      *    - "message": the message of the result of the selection operation
      */
-    public static ObjectNode select(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput select(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             if (user.getMode() == Enums.UserMode.OFFLINE) {
@@ -82,54 +68,42 @@ public final class CommandRunner {
         } else {
             message = "User is null.";
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used to load a source that was previously selected by user
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *      load operation:
      *        - "command": the name of the command
      *        - "user": the name of the user
      *        - "timestamp": timestamp of the command
      *        - "message": the message of the result of the load operation
      */
-    public static ObjectNode load(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput load(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.load();
         } else {
             message = "User is null";
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used tp play or pause a source
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *      playPause operation:
      *      *   - "command": the name of the command
      *      *    - "user": the name of the user
      *      *    - "timestamp": timestamp of the command
      *      *    - "message": the message of the result of the playPause operation
      */
-    public static ObjectNode playPause(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput playPause(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
              message = user.playPause();
@@ -137,126 +111,96 @@ public final class CommandRunner {
             message = "User is null!";
         }
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used for the repeat command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *            repeat operation:
      *           - "command": the name of the command
      *           - "user": the name of the user
      *           - "timestamp": timestamp of the command
      *           - "message": the message of the result of the repeat operation
      */
-    public static ObjectNode repeat(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput repeat(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.repeat();
         } else {
             message = "User si null";
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used for the shuffle command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                 shuffle operation:
      *             - "command": the name of the command
      *             - "user": the name of the user
      *             - "timestamp": timestamp of the command
      *             - "message": the message of the result of the shuffle operation
      */
-    public static ObjectNode shuffle(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput shuffle(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         Integer seed = commandInput.getSeed();
         String message = user.shuffle(seed);
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used for the forward command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                     forward operation:
      *                - "command": the name of the command
      *                - "user": the name of the user
      *                - "timestamp": timestamp of the command
      *                - "message": the message of the result of the forward operation
      */
-    public static ObjectNode forward(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput forward(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.forward();
         } else {
             message = null;
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the backward command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                 backward operation:
      *                - "command": the name of the command
      *                - "user": the name of the user
      *                - "timestamp": timestamp of the command
      *                - "message": the message of the result of the backward operation
      */
-    public static ObjectNode backward(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput backward(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message = user.backward();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the like command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                like operation:
      *                - "command": the name of the command
      *                - "user": the name of the user
      *                - "timestamp": timestamp of the command
      *                - "message": the message of the result of the like operation
      */
-    public static ObjectNode like(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput like(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             if (user.getMode() == Enums.UserMode.OFFLINE) {
@@ -267,70 +211,52 @@ public final class CommandRunner {
         } else {
             message = "User is null";
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the "next" command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                next operation:
      *                - "command": the name of the command
      *                - "user": the name of the user
      *                - "timestamp": timestamp of the command
      *                - "message": the message of the result of the next operation
      */
-    public static ObjectNode next(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput next(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message = user.next();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the prev command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                prev operation:
      *                - "command": the name of the command
      *                - "user": the name of the user
      *                - "timestamp": timestamp of the command
      *                - "message": the message of the result of the prev operation
      */
-    public static ObjectNode prev(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput prev(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message = user.prev();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used to create a playlist and add it in the system
      * @param commandInput used to get the command name, username.
-     * @return  an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                      createPlaylist operation:
      *                   - "command": the name of the command
      *                   - "user": the name of the user
      *                   - "message": the message of the result of the createPlaylist operation
      */
-    public static ObjectNode createPlaylist(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput createPlaylist(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.createPlaylist(commandInput.getPlaylistName(),
@@ -338,363 +264,253 @@ public final class CommandRunner {
         } else {
             message = "User is null";
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used to create a playlist and add it in the system
      * @param commandInput used to get the command name, username.
-     * @return  an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                     add remove operation:
      *                   - "command": the name of the command
      *                   - "user": the name of the user
      *                   - "message": the message of the result of the add remove operation
      */
-    public static ObjectNode addRemoveInPlaylist(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput addRemoveInPlaylist(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
     if (user != null) {
         message = user.addRemoveInPlaylist(commandInput.getPlaylistId());
     } else {
         message = "User is null";
     }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used to switch the visibility of a playlist
      * @param commandInput used to find the name of the user, timestamp and other information
-     * @return an ObjectNode with the results.
+     * @return an output with the results.
      */
-    public static ObjectNode switchVisibility(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput switchVisibility(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message = user.switchPlaylistVisibility(commandInput.getPlaylistId());
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used to show all playlists.
      * @param commandInput used to find the name of the user, command
-     * @return  ObjectNode containing the Playlists' names and other details(command name,
+     * @return an output containing the Playlists' names and other details(command name,
      * timestamp, username)
      */
-    public static ObjectNode showPlaylists(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput showPlaylists(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         ArrayList<PlaylistOutput> playlists = user.showPlaylists();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(playlists));
-
-        return objectNode;
+        return CommandOutput.entries(commandInput, playlists);
     }
     /**
      * Used for the follow command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                follow operation:
      *                - "command": the name of the command
      *                - "user": the name of the user
      *                - "message": the message of the result of the follow operation
      */
-    public static ObjectNode follow(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput follow(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.follow();
         } else {
             message = null;
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the status command
      * @param commandInput used to know the name of the command , user, timestamp
-     * @return an ObjectNode containing information about the command and the result of the
+     * @return an output containing information about the command and the result of the
      *                status operation:
      *                - "command": the name of the command
      *                - "message": the message of the result of the status operation
      */
-    public static ObjectNode status(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput status(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         PlayerStats stats;
         if (user != null) {
             stats = user.getPlayerStats();
         } else {
             stats = null;
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("stats", objectMapper.valueToTree(stats));
-
-        return objectNode;
+        return CommandOutput.stats(commandInput, stats);
     }
 
     /**
      * Used to display liked songs
      * @param commandInput the object containing the command information
-     * @return an ObjectNode containing Liked songs names and other details(command name,
+     * @return an output containing Liked songs names and other details(command name,
      * timestamp)
      */
-    public static ObjectNode showLikedSongs(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput showLikedSongs(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         ArrayList<String> songs = user.showPreferredSongs();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(songs));
-
-        return objectNode;
+        return CommandOutput.names(commandInput, songs);
     }
 
     /**
      * Used to show all podcasts.
      * @param commandInput used to find the name of the user, command
-     * @return  ObjectNode containing Podcasts names and other details(command name, timestamp)
+     * @return an output containing Podcasts names and other details(command name, timestamp)
      */
-    public static ObjectNode showPodcasts(final CommandInput commandInput) {
+    public static CommandOutput showPodcasts(final CommandInput commandInput) {
 
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+        User user = commandInput.getUser();
         ArrayList<PodcastOutput> podcasts = user.showPodcasts();
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(podcasts));
-
-        return objectNode;
+        return CommandOutput.entries(commandInput, podcasts);
     }
 
     /**
      * Used for the get preferred genre command
      * @param commandInput used to get teh command's name and the username
-     * @return and Object Node with the results.
+     * @return an output with the results.
      */
-    public static ObjectNode getPreferredGenre(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput getPreferredGenre(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String preferredGenre = user.getPreferredGenre();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(preferredGenre));
-
-        return objectNode;
+        return CommandOutput.text(commandInput, preferredGenre);
     }
     /**
-     * Retrieves the top 5 songs and constructs an ObjectNode containing the command, timestamp,
+     * Retrieves the top 5 songs and builds an output containing the command, timestamp,
      * and the top 5 songs as the result.
      * @param commandInput The CommandInput containing command and timestamp details.
-     * @return An ObjectNode containing command, timestamp, and the top 5 songs as the result.
+     * @return An output containing command, timestamp, and the top 5 songs as the result.
      */
-    public static ObjectNode getTop5Songs(final CommandInput commandInput) {
+    public static CommandOutput getTop5Songs(final CommandInput commandInput) {
         List<String> songs = Admin.getInstance().getTop5Songs();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(songs));
-
-        return objectNode;
+        return CommandOutput.statistic(commandInput, songs);
     }
     /**
-     * Retrieves the top 5 playlists and constructs an ObjectNode containing the command,
+     * Retrieves the top 5 playlists and builds an output containing the command,
      * timestamp,and the top 5 playlists as the result.
      * @param commandInput The CommandInput containing command and timestamp details.
-     * @return An ObjectNode containing command, timestamp, and the top 5 playlists as the result.
+     * @return An output containing command, timestamp, and the top 5 playlists as the result.
      */
-    public static ObjectNode getTop5Playlists(final CommandInput commandInput) {
+    public static CommandOutput getTop5Playlists(final CommandInput commandInput) {
         List<String> playlists = Admin.getInstance().getTop5Playlists();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(playlists));
-
-        return objectNode;
+        return CommandOutput.statistic(commandInput, playlists);
     }
     /**
-     * Retrieves the top 5 albums and constructs an ObjectNode containing the command,
+     * Retrieves the top 5 albums and builds an output containing the command,
      * timestamp,and the top 5 albums as the result.
      * @param commandInput The CommandInput containing command and timestamp details.
-     * @return An ObjectNode containing command, timestamp, and the top 5 albums as the result.
+     * @return An output containing command, timestamp, and the top 5 albums as the result.
      */
-    public static ObjectNode getTop5Albums(final CommandInput commandInput) {
+    public static CommandOutput getTop5Albums(final CommandInput commandInput) {
         List<String> playlists = Admin.getTop5Albums();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(playlists));
-
-        return objectNode;
+        return CommandOutput.statistic(commandInput, playlists);
     }
     /**
-     * Retrieves the top 5 artists and constructs an ObjectNode containing the command,
+     * Retrieves the top 5 artists and builds an output containing the command,
      * timestamp,and the top 5 artists as the result.
      * @param commandInput The CommandInput containing command and timestamp details.
-     * @return An ObjectNode containing command, timestamp, and the top 5 artists as the result.
+     * @return An output containing command, timestamp, and the top 5 artists as the result.
      */
-    public static ObjectNode getTop5Artists(final CommandInput commandInput) {
+    public static CommandOutput getTop5Artists(final CommandInput commandInput) {
         List<String> songs = Admin.getInstance().getTop5Artist();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(songs));
-
-        return objectNode;
+        return CommandOutput.statistic(commandInput, songs);
     }
 
     /**
      * Used to change the user's status from online to offline.
      * @param commandInput used to find the command's name, username, timestamp.
-     * @return an ObjectNode with the results(message, timestamp).
+     * @return an output with the results(message, timestamp).
      */
-    public static ObjectNode switchConnectionStatus(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput switchConnectionStatus(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.switchConnectionStatus();
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
-     * Returns an ObjectNode containing information about online users following a command.
+     * Returns an output containing information about online users following a command.
      * @param commandInput the object containing the command information
-     * @return an ObjectNode containing online usernames and other details(command name, timestamp)
+     * @return an output containing online usernames and other details(command name, timestamp)
      */
-    public static ObjectNode getOnlineUsers(final CommandInput commandInput) {
+    public static CommandOutput getOnlineUsers(final CommandInput commandInput) {
         List<String> results = Admin.getInstance().getOnlineUsers();
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(results));
-        return objectNode;
+        return CommandOutput.statistic(commandInput, results);
     }
     /**
-     * Returns an ObjectNode containing information about all users.
+     * Returns an output containing information about all users.
      * @param commandInput the object containing the command information
-     * @return an ObjectNode containing usernames and other details(command name, timestamp)
+     * @return an output containing usernames and other details(command name, timestamp)
      */
-    public static ObjectNode getAllUsers(final CommandInput commandInput) {
+    public static CommandOutput getAllUsers(final CommandInput commandInput) {
         List<String> results = Admin.getInstance().getAllUsers();
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(results));
-        return objectNode;
+        return CommandOutput.statistic(commandInput, results);
     }
     /**
      * Used for the add user command
      * @param commandInput used to find the current user, timestamp ,command's name
-     * @return an ObjectNode with the results.
+     * @return an output with the results.
      */
-    public static ObjectNode addUser(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
+    public static CommandOutput addUser(final CommandInput commandInput) {
         String message = Admin.getInstance().addUser(commandInput);
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the add podcast command
      * @param commandInput used to find the current user, timestamp ,command's name
      *                     and information about the podcast we want to add(name, episodes).
-     * @return an ObjectNode with the results.
+     * @return an output with the results.
      */
-    public static ObjectNode addPodcast(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
+    public static CommandOutput addPodcast(final CommandInput commandInput) {
         String message = Admin.getInstance().addPodcast(commandInput, commandInput.getName(),
                 commandInput.getUsername(),
                 commandInput.getEpisodes());
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used to remove a podcast from the system
      * @param commandInput used to find the command's name, username, timestamp
-     * @return an Object Node which contains the results: corresponding message, timestamp.
+     * @return an output which contains the results: corresponding message, timestamp.
      */
-    public static ObjectNode removePodcast(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
+    public static CommandOutput removePodcast(final CommandInput commandInput) {
         String message = Admin.getInstance().removePodcast(commandInput);
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used to remove a user from the system
      * @param commandInput used to find the command's name, username, timestamp
-     * @return an Object Node which contains the results: corresponding message
+     * @return an output which contains the results: corresponding message
      *  for the removal task, timestamp, username.
      */
-    public static ObjectNode deleteUser(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
+    public static CommandOutput deleteUser(final CommandInput commandInput) {
         String message = Admin.getInstance().deleteUser(commandInput);
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for the add album command
      * @param commandInput used to find the current user, timestamp ,command's name
      *                     and information about the album we want to add(name, description).
-     * @return an ObjectNode with the results.
+     * @return an output with the results.
      */
-    public static ObjectNode addAlbum(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
-        objectNode.put("command", commandInput.getCommand());
+    public static CommandOutput addAlbum(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.addAlbum(commandInput.getName(), commandInput.getUsername(),
@@ -703,60 +519,43 @@ public final class CommandRunner {
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for remove album command
      * @param commandInput used to find the current user, timestamp and command's name.
-     * @return an ObjectNode with the results(corresponding message, timestamp,
+     * @return an output with the results(corresponding message, timestamp,
      * command's and user's name).
      */
-    public static ObjectNode removeAlbum(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
-        objectNode.put("command", commandInput.getCommand());
+    public static CommandOutput removeAlbum(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String message;
         if (user != null) {
             message = user.removeAlbum(commandInput);
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for ShowAlbum command
      * @param commandInput used to find the current user, timestamp and command's name.
-     * @return an ObjectNode with the results(names of the albums, command name, timestamp).
+     * @return an output with the results(names of the albums, command name, timestamp).
      */
-    public static ObjectNode showAlbums(final CommandInput commandInput) {
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput showAlbums(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         ArrayList<AlbumOutput> albums = user.showAlbums();
 
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("result", objectMapper.valueToTree(albums));
-
-        return objectNode;
+        return CommandOutput.entries(commandInput, albums);
     }
     /**
      * Used to add an event in the artist's system.
      * @param commandInput used to find the name of the user and information about the event
      *                     such as name, description, timestamp, date.
-     * @return an ObjectNode with operation results and corresponding messages.
+     * @return an output with operation results and corresponding messages.
      */
-    public static ObjectNode addEvent(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput addEvent(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
         if (user != null) {
             message = user.addEvent(commandInput.getName(), commandInput.getName(),
@@ -765,21 +564,16 @@ public final class CommandRunner {
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used to add an announcement in the host's system.
      * @param commandInput used to find the name of the user and information about the announcement
      *                     such as name, description, timestamp.
-     * @return an ObjectNode with operation results and corresponding messages.
+     * @return an output with operation results and corresponding messages.
      */
-    public static ObjectNode addAnnouncement(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput addAnnouncement(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
         if (user != null) {
             message = user.addAnnouncement(commandInput.getName(), commandInput.getName(),
@@ -787,62 +581,47 @@ public final class CommandRunner {
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used to remove an announcement from the host's system.
      * @param commandInput used to find the name of the user, command, timestamp
-     * @return an ObjectNode with operation results and corresponding messages.
+     * @return an output with operation results and corresponding messages.
      */
-    public static ObjectNode removeAnnouncement(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput removeAnnouncement(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
         if (user != null) {
             message = user.removeAnnouncement(commandInput);
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used to remove an event from the artist's system.
      * @param commandInput used to find the name of the user, command, timestamp
-     * @return an ObjectNode with operation results and corresponding messages.
+     * @return an output with operation results and corresponding messages.
      */
-    public static ObjectNode removeEvent(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput removeEvent(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
         if (user != null) {
             message = user.removeEvent(commandInput);
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 
     /**
      * Used to add a Merch in the artists system
      * @param commandInput used to find the name of the user and information about the merch
      *                     such as name, description, price.
-     * @return an ObjectNode with operation results and corresponding messages.
+     * @return an output with operation results and corresponding messages.
      */
-    public static ObjectNode addMerch(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput addMerch(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
         if (user != null) {
             message = user.addMerch(commandInput.getName(), commandInput.getName(),
@@ -851,51 +630,37 @@ public final class CommandRunner {
         } else {
             message = "The username " + commandInput.getUsername() + " doesn't exist.";
         }
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
     /**
      * Used for printCurrentPage command
      * @param commandInput used to find the current user, timestamp and command's name.
-     * @return an ObjectNode with the results.
+     * @return an output with the results.
      */
-    public static  ObjectNode printCurrentPage(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput printCurrentPage(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
             if (user != null && user.getMode() == Enums.UserMode.OFFLINE) {
                 message = user.getUsername() + " is offline.";
             } else {
                 message = user.printCurrentPage();
             }
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.pageMessage(commandInput, message);
     }
 
     /**
      * Used for changePage command
      * @param commandInput used to find the current user, timestamp and command's name.
-     * @return an ObjectNode with the results.
+     * @return an output with the results.
      */
-    public static  ObjectNode changePage(final CommandInput commandInput) {
-        ObjectNode objectNode = objectMapper.createObjectNode();
-        User user = Admin.getInstance().getUser(commandInput.getUsername());
+    public static CommandOutput changePage(final CommandInput commandInput) {
+        User user = commandInput.getUser();
         String  message;
         if (user != null && user.getMode() == Enums.UserMode.OFFLINE) {
             message = user.getUsername() + " is offline.";
         } else {
             message = user.changePage(commandInput);
         }
-        objectNode.put("command", commandInput.getCommand());
-        objectNode.put("user", commandInput.getUsername());
-        objectNode.put("timestamp", commandInput.getTimestamp());
-        objectNode.put("message", message);
-        return objectNode;
+        return CommandOutput.message(commandInput, message);
     }
 }
@@ -0,0 +1,134 @@
+package app;
+
+import fileio.input.CommandInput;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the commands of a replay, running the commands of different users at the same time
+ * where that cannot change the outcome.
+ * Consecutive USER commands (see CommandDispatcher.Scope) are collected in a batch. When a
+ * GLOBAL command arrives, or the batch is full, the batch is split by username: the commands
+ * of one user run in their original order on one thread, and different users run on
+ * different threads. The GLOBAL command then runs alone. Outputs are always handed back in
+ * the order of the commands, so the result is the same as running everything in order.
+ */
+public final class CommandScheduler implements AutoCloseable {
+    private static final int MAX_BATCH = 4096;
+
+    private final ExecutorService pool;
+    private final List<CommandInput> batch = new ArrayList<>();
+
+    /**
+     * @param threads how many commands may run at the same time; 1 or less runs every
+     *                command in order on the calling thread
+     */
+    public CommandScheduler(final int threads) {
+        if (threads > 1) {
+            this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "command-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Hands a command to the scheduler.
+     * @param commandInput the next command of the replay
+     * @return the outputs of the commands that finished, in command order; null elements
+     * stand for unknown commands, which have no output
+     */
+    public List<CommandOutput> submit(final CommandInput commandInput) {
+        if (pool != null && CommandDispatcher.isUserScoped(commandInput)) {
+            batch.add(commandInput);
+            if (batch.size() < MAX_BATCH) {
+                return new ArrayList<>();
+            }
+            return runBatch();
+        }
+        List<CommandOutput> outputs = runBatch();
+        outputs.add(CommandDispatcher.dispatch(commandInput));
+        return outputs;
+    }
+
+    /**
+     * Runs the commands that are still waiting.
+     * @return their outputs, in command order
+     */
+    public List<CommandOutput> flush() {
+        return runBatch();
+    }
+
+    private List<CommandOutput> runBatch() {
+        List<CommandOutput> outputs = new ArrayList<>();
+        if (batch.isEmpty()) {
+            return outputs;
+        }
+
+        Map<String, List<Integer>> byUser = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            byUser.computeIfAbsent(batch.get(i).getUsername(), k -> new ArrayList<>()).add(i);
+        }
+        CommandOutput[] results = new CommandOutput[batch.size()];
+        if (byUser.size() == 1) {
+            for (int i = 0; i < batch.size(); i++) {
+                results[i] = CommandDispatcher.dispatchForUser(batch.get(i));
+            }
+        } else {
+            List<Future<?>> running = new ArrayList<>();
+            for (List<Integer> positions : byUser.values()) {
+                running.add(pool.submit(() -> {
+                    for (int position : positions) {
+                        results[position] = CommandDispatcher.dispatchForUser(batch.get(position));
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                await(future);
+            }
+        }
+        batch.clear();
+
+        for (CommandOutput result : results) {
+            outputs.add(result);
+        }
+        return outputs;
+    }
+
+    private static void await(final Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running commands", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package app;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that keeps the bytes it read, from an offset on, so the exact text of a
+ * command can be logged once the parser has read it (see CommandLog). The parser reads
+ * ahead, so the kept bytes run past the command; release drops the ones before the next
+ * command, which keeps the window at about one command plus one read.
+ */
+public final class RecordingInputStream extends FilterInputStream {
+    private static final int INITIAL_CAPACITY = 1 << 14;
+
+    private byte[] window = new byte[INITIAL_CAPACITY];
+    private int first;
+    private int end;
+    private long start;
+
+    public RecordingInputStream(final InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = in.read();
+        if (read >= 0) {
+            keep(new byte[]{(byte) read}, 0, 1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length)
+            throws IOException {
+        int read = in.read(bytes, offset, length);
+        if (read > 0) {
+            keep(bytes, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long count) throws IOException {
+        byte[] skipped = new byte[(int) Math.min(count, INITIAL_CAPACITY)];
+        int read = read(skipped, 0, skipped.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Drops the kept bytes before an offset.
+     * @param offset an offset in the stream, from its first byte
+     */
+    public void release(final long offset) {
+        int dropped = (int) Math.min(Math.max(offset - start, 0), end - first);
+        first += dropped;
+        start += dropped;
+    }
+
+    /**
+     * @return the kept bytes, valid until the next read or release; see index
+     */
+    public byte[] buffer() {
+        return window;
+    }
+
+    /**
+     * @param offset an offset in the stream that is still kept
+     * @return the index of the byte at that offset in the buffer
+     */
+    public int index(final long offset) {
+        if (offset < start || offset > start + end - first) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is not kept");
+        }
+        return first + (int) (offset - start);
+    }
+
+    /**
+     * Adds read bytes to the window. The released bytes are only dropped from the buffer
+     * when it runs out of room, so they are moved once per buffer rather than per command.
+     */
+    private void keep(final byte[] bytes, final int offset, final int length) {
+        if (end + length > window.length) {
+            int kept = end - first;
+            byte[] target = kept + length > window.length
+                    ? new byte[Math.max(window.length * 2, kept + length)] : window;
+            System.arraycopy(window, first, target, 0, kept);
+            window = target;
+            first = 0;
+            end = kept;
+        }
+        System.arraycopy(bytes, offset, window, end, length);
+        end += length;
+    }
+}
@@ -0,0 +1,171 @@
+package app;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The output file of a replay: the outputs of the commands, written as one JSON array.
+ * The file can be resumed from a position saved with a checkpoint of the command log (see
+ * CommandLog). It is cut back to that position and the array goes on from there, so a
+ * recovered replay writes exactly the file an uninterrupted one would have written.
+ */
+public final class ReplayOutput implements Closeable {
+    private final FileChannel channel;
+    private final JsonGenerator generator;
+    private long outputs;
+
+    private ReplayOutput(final FileChannel channel, final JsonGenerator generator,
+                         final long outputs) {
+        this.channel = channel;
+        this.generator = generator;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Opens the output file at a position. What follows the position is dropped, and the
+     * array of outputs goes on from there.
+     * @param path the output file
+     * @param factory the factory of the generator
+     * @param pretty true to pretty print the outputs
+     * @param position where the file goes on from, Position.START for a new file
+     * @return the output
+     * @throws IOException if the file cannot be opened, or is shorter than the position
+     */
+    public static ReplayOutput open(final Path path, final JsonFactory factory,
+                                    final boolean pretty, final Position position)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, CREATE, WRITE);
+        if (channel.size() < position.getBytes()) {
+            channel.close();
+            throw new IOException(path + " is shorter than the checkpoint of its replay");
+        }
+        channel.truncate(position.getBytes());
+        channel.position(position.getBytes());
+
+        Sink sink = new Sink(channel);
+        JsonGenerator generator = factory.createGenerator(sink, JsonEncoding.UTF8);
+        if (pretty) {
+            generator.setPrettyPrinter(new DefaultPrettyPrinter());
+        }
+        if (position.getBytes() > 0) {
+            // The file already holds the start of the array and the outputs before the
+            // position: bring the generator to the state it had there without writing them.
+            sink.discarding = true;
+            generator.writeStartArray();
+            if (position.getOutputs() > 0) {
+                generator.writeNull();
+            }
+            generator.flush();
+            sink.discarding = false;
+        } else {
+            generator.writeStartArray();
+        }
+        return new ReplayOutput(channel, generator, position.getOutputs());
+    }
+
+    /**
+     * Writes the outputs of some commands.
+     * @param commandOutputs the outputs, in command order; nulls are skipped
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final List<CommandOutput> commandOutputs) throws IOException {
+        for (CommandOutput output : commandOutputs) {
+            if (output != null) {
+                output.write(generator);
+                outputs++;
+            }
+        }
+    }
+
+    /**
+     * Writes and forces to disk everything written so far.
+     * @return the position the file can be resumed from
+     * @throws IOException if the file cannot be written
+     */
+    public Position sync() throws IOException {
+        generator.flush();
+        channel.force(false);
+        return new Position(channel.position(), outputs);
+    }
+
+    /**
+     * Ends the array of outputs, once the replay is complete.
+     * @throws IOException if the file cannot be written
+     */
+    public void finish() throws IOException {
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    /**
+     * A point of the output file: how many bytes and how many outputs were written before it.
+     */
+    @Getter
+    public static final class Position {
+        /**
+         * The start of a new file.
+         */
+        public static final Position START = new Position(0, 0);
+
+        private final long bytes;
+        private final long outputs;
+
+        public Position(final long bytes, final long outputs) {
+            this.bytes = bytes;
+            this.outputs = outputs;
+        }
+    }
+
+    /**
+     * Writes straight to the channel, or nowhere while the generator is brought back to
+     * the state it had at a position.
+     */
+    private static final class Sink extends OutputStream {
+        private final FileChannel channel;
+        private boolean discarding;
+
+        Sink(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length)
+                throws IOException {
+            if (discarding) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
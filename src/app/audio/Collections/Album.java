@@ -4,6 +4,7 @@ import app.audio.Files.AudioFile;
 import app.audio.Files.Song;
 import fileio.input.SongInput;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.util.ArrayList;
 
@@ -14,6 +15,8 @@ public final class Album extends AudioCollection {
     private String description;
     private String releaseYear;
     private ArrayList<SongInput> songsAlbum;
+    @Setter
+    private int ordinal = -1;
 
     public Album(final String name, final String owner, final int timestamp,
                  final String description, final String releaseYear,
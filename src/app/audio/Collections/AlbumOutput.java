@@ -1,10 +1,13 @@
 package app.audio.Collections;
 
+import app.utils.JsonWritable;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 @Getter
-public class AlbumOutput {
+public class AlbumOutput implements JsonWritable {
     private final String name;
     private final ArrayList<String> songs;
     public AlbumOutput(final Album album) {
@@ -14,4 +17,12 @@ public class AlbumOutput {
             songs.add(album.getSongsAlbum().get(i).getName());
         }
     }
+
+    @Override
+    public final void write(final JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        JsonWritable.writeStrings(generator, "songs", songs);
+        generator.writeEndObject();
+    }
 }
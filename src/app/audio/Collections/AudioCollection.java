@@ -25,6 +25,15 @@ public abstract class AudioCollection extends LibraryEntry {
      */
     public abstract AudioFile getTrackByIndex(int index);
 
+    /**
+     * Counts the changes made to the tracks of the collection, so that whoever keeps data
+     * computed from the tracks knows when to compute it again.
+     * @return a number that changes whenever the tracks change
+     */
+    public int getModifications() {
+        return 0;
+    }
+
     @Override
     public final boolean matchesOwner(final String user) {
         return this.getOwner().equals(user);
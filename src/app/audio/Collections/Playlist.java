@@ -1,20 +1,57 @@
 package app.audio.Collections;
 
+import app.Admin;
 import app.audio.Files.AudioFile;
 import app.audio.Files.Song;
 import app.utils.Enums;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
+/**
+ * A playlist keeps its songs in an array in playlist order, together with the position of
+ * every song, so checking or changing whether a song is in the playlist does not scan it.
+ * A removed song leaves an empty slot behind, and a Fenwick tree counting the songs left in
+ * the slots finds the slot of the song at an index. The empty slots are only dropped once
+ * they are more than half of the array, so removing a song costs a walk up the tree and
+ * the copying is paid for by the removals that made the slots empty. Reading never changes
+ * the slots: the songs are changed by commands that run alone and read by players that may
+ * run in parallel, and the methods that touch them are synchronized.
+ */
 @Getter
 public final class Playlist extends AudioCollection {
+    private static final int INITIAL_SLOTS = 8;
+    /**
+     * The slots are compacted once more than one in this many of them are empty.
+     */
+    private static final int COMPACT_RATIO = 2;
+
+    @Getter(AccessLevel.NONE)
     private final ArrayList<Song> songs;
+    @Getter(AccessLevel.NONE)
+    private final Map<Song, Integer> positions = new HashMap<>();
+    /**
+     * Fenwick tree over the slots of songs: entry i counts the songs in the slots from
+     * i - (i & -i) to i - 1. It has room for more slots than songs holds.
+     */
+    @Getter(AccessLevel.NONE)
+    private int[] counts = new int[INITIAL_SLOTS + 1];
+    @Getter(AccessLevel.NONE)
+    private int removed = 0;
     private Enums.Visibility visibility;
-    @Setter
-    private Integer followers;
     private final int timestamp;
+    @Setter
+    private int ordinal = -1;
+    private int modifications = 0;
 
     public Playlist(final String name, final String owner) {
 
@@ -25,7 +62,6 @@ public final class Playlist extends AudioCollection {
         super(name, owner);
         this.songs = new ArrayList<>();
         this.visibility = Enums.Visibility.PUBLIC;
-        this.followers = 0;
         this.timestamp = timestamp;
     }
     /**
@@ -33,59 +69,138 @@ public final class Playlist extends AudioCollection {
      * @param song The song to check for.
      * @return true if the song is found , false otherwise.
      */
-    public boolean containsSong(final Song song) {
-        return songs.contains(song);
+    public synchronized boolean containsSong(final Song song) {
+        return positions.containsKey(song);
     }
 
     /**
      * Used to add a song in the general list of songs.
      * @param song is the song we want to add.
      */
-    public void addSong(final Song song) {
+    public synchronized void addSong(final Song song) {
+        if (positions.containsKey(song)) {
+            return;
+        }
+        positions.put(song, songs.size());
         songs.add(song);
+        count(songs.size() - 1, 1);
+        modifications++;
     }
 
     /**
      * Used to remove a song from the general list of songs.
      * @param song is the song we want to remove.
      */
-    public void removeSong(final Song song) {
-        songs.remove(song);
+    public synchronized void removeSong(final Song song) {
+        Integer position = positions.remove(song);
+        if (position == null) {
+            return;
+        }
+        songs.set(position, null);
+        removed++;
+        modifications++;
+        if (removed * COMPACT_RATIO > songs.size()) {
+            compact();
+        } else {
+            count(position, -1);
+        }
     }
 
     /**
-     * Used to change visibility from public to private or inverse.
+     * @return a read only view over the songs, in playlist order, valid until the playlist
+     * changes
      */
-    public void switchVisibility() {
-        if (visibility == Enums.Visibility.PUBLIC) {
-            visibility = Enums.Visibility.PRIVATE;
-        } else {
-            visibility = Enums.Visibility.PUBLIC;
+    public synchronized List<Song> getSongs() {
+        return new SongsView();
+    }
+
+    private void compact() {
+        int live = 0;
+        for (Song song : songs) {
+            if (song != null) {
+                positions.put(song, live);
+                songs.set(live++, song);
+            }
+        }
+        songs.subList(live, songs.size()).clear();
+        removed = 0;
+        recount(counts.length - 1);
+    }
+
+    /**
+     * Adds to the number of songs counted for a slot, making room in the tree first if the
+     * slot is past its end.
+     */
+    private void count(final int slot, final int delta) {
+        if (slot + 1 >= counts.length) {
+            recount(2 * (counts.length - 1));
+            return;
+        }
+        for (int i = slot + 1; i < counts.length; i += i & -i) {
+            counts[i] += delta;
         }
     }
 
     /**
-     * Used to increase the number of followers.
+     * Builds the tree again from the slots, with room for the given number of them.
      */
-    public void increaseFollowers() {
-        followers++;
+    private void recount(final int slots) {
+        counts = new int[slots + 1];
+        for (int i = 1; i < counts.length; i++) {
+            if (i <= songs.size() && songs.get(i - 1) != null) {
+                counts[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent < counts.length) {
+                counts[parent] += counts[i];
+            }
+        }
     }
 
     /**
-     * Used to decrease the number of followers.
+     * @return the slot of the song at an index, one that is in the playlist
      */
-    public void decreaseFollowers() {
-        followers--;
+    private int slot(final int index) {
+        if (removed == 0) {
+            return index;
+        }
+        int slot = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(counts.length - 1); step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next < counts.length && counts[next] < remaining) {
+                slot = next;
+                remaining -= counts[next];
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Used to change visibility from public to private or inverse.
+     */
+    public void switchVisibility() {
+        if (visibility == Enums.Visibility.PUBLIC) {
+            visibility = Enums.Visibility.PRIVATE;
+        } else {
+            visibility = Enums.Visibility.PUBLIC;
+        }
+    }
+
+    @Override
+    public synchronized int getModifications() {
+        return modifications;
     }
 
     @Override
-    public int getNumberOfTracks() {
-        return songs.size();
+    public synchronized int getNumberOfTracks() {
+        return songs.size() - removed;
     }
 
     @Override
-    public AudioFile getTrackByIndex(final int index) {
-        return songs.get(index);
+    public synchronized AudioFile getTrackByIndex(final int index) {
+        Objects.checkIndex(index, songs.size() - removed);
+        return songs.get(slot(index));
     }
 
     @Override
@@ -97,7 +212,54 @@ public final class Playlist extends AudioCollection {
 
     @Override
     public boolean matchesFollowers(final String followersName) {
-        return filterByFollowersCount(this.getFollowers(), followersName);
+        return filterByFollowersCount(Admin.getInstance().getFollowers(this), followersName);
+    }
+
+    /**
+     * The songs of the playlist as they are, skipping the empty slots. It is only read while
+     * no command changes the playlist, so it reads the slots without locking.
+     */
+    private final class SongsView extends AbstractList<Song> {
+        @Override
+        public Song get(final int index) {
+            Objects.checkIndex(index, songs.size() - removed);
+            return songs.get(slot(index));
+        }
+
+        @Override
+        public int size() {
+            return songs.size() - removed;
+        }
+
+        @Override
+        public Iterator<Song> iterator() {
+            return new Iterator<>() {
+                private int next = skip(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < songs.size();
+                }
+
+                @Override
+                public Song next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Song song = songs.get(next);
+                    next = skip(next + 1);
+                    return song;
+                }
+            };
+        }
+
+        private int skip(final int from) {
+            int slot = from;
+            while (slot < songs.size() && songs.get(slot) == null) {
+                slot++;
+            }
+            return slot;
+        }
     }
 
     private static boolean filterByFollowersCount(final int count, final String query) {
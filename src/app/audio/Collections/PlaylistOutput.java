@@ -1,27 +1,40 @@
 package app.audio.Collections;
 
+import app.audio.Files.Song;
 import app.utils.Enums;
+import app.utils.JsonWritable;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 @Getter
-public class PlaylistOutput {
+public class PlaylistOutput implements JsonWritable {
     private final String name;
     private final ArrayList<String> songs;
     private final String visibility;
     private final int followers;
 
 
-    public PlaylistOutput(final Playlist playlist) {
+    public PlaylistOutput(final Playlist playlist, final int followers) {
         this.name = playlist.getName();
         this.songs = new ArrayList<>();
-        for (int i = 0; i < playlist.getSongs().size(); i++) {
-            songs.add(playlist.getSongs().get(i).getName());
+        for (Song song : playlist.getSongs()) {
+            songs.add(song.getName());
         }
         this.visibility = playlist.getVisibility()
                 == Enums.Visibility.PRIVATE ? "private" : "public";
-        this.followers = playlist.getFollowers();
+        this.followers = followers;
     }
 
+    @Override
+    public final void write(final JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        JsonWritable.writeStrings(generator, "songs", songs);
+        generator.writeStringField("visibility", visibility);
+        generator.writeNumberField("followers", followers);
+        generator.writeEndObject();
+    }
 }
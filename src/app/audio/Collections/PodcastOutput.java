@@ -1,10 +1,13 @@
 package app.audio.Collections;
 
+import app.utils.JsonWritable;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 @Getter
-public class PodcastOutput {
+public class PodcastOutput implements JsonWritable {
     private final String name;
     private final ArrayList<String> episodes;
     public PodcastOutput(final Podcast podcast) {
@@ -14,4 +17,12 @@ public class PodcastOutput {
             episodes.add(podcast.getEpisodes().get(i).getName());
         }
     }
+
+    @Override
+    public final void write(final JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        JsonWritable.writeStrings(generator, "episodes", episodes);
+        generator.writeEndObject();
+    }
 }
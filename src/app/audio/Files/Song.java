@@ -1,13 +1,22 @@
 package app.audio.Files;
 
+import app.catalog.SongColumns;
+import app.catalog.StringInterner;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * A song of the library or of an album. The genre and tags of a song are the shared
+ * instances of the song details (see StringInterner), so songs with the same genre or tags
+ * do not each keep a copy of the text.
+ */
 @Getter
 public final class Song extends AudioFile {
+    private static final StringInterner DETAILS = StringInterner.SONG_DETAILS;
+
     private final String album;
     private final ArrayList<String> tags;
     private final String lyrics;
@@ -15,56 +24,137 @@ public final class Song extends AudioFile {
     private final Integer releaseYear;
     private final String artist;
     @Setter
-    private Integer likes;
+    private int ordinal = -1;
+    private final String lyricsLowerCase;
+    @Getter(AccessLevel.NONE)
+    private final SongColumns columns;
+    @Getter(AccessLevel.NONE)
+    private final int row;
 
     public Song(final String name, final Integer duration, final String album,
                 final ArrayList<String> tags, final String lyrics,
                 final String genre, final Integer releaseYear, final String artist) {
         super(name, duration);
         this.album = album;
-        this.tags = tags;
         this.lyrics = lyrics;
-        this.genre = genre;
+        this.lyricsLowerCase = lyrics == null ? null : lyrics.toLowerCase();
+        this.genre = DETAILS.intern(genre);
         this.releaseYear = releaseYear;
         this.artist = artist;
-        this.likes = 0;
+        if (tags != null) {
+            this.tags = new ArrayList<>(tags.size());
+            for (String tag : tags) {
+                this.tags.add(DETAILS.intern(tag));
+            }
+        } else {
+            this.tags = null;
+        }
+        this.columns = null;
+        this.row = -1;
     }
 
-    @Override
-    public boolean matchesAlbum(final String albumName) {
+    /**
+     * Creates a view of a song kept in mapped columns. The view holds no details of its
+     * own: every getter reads them from the columns, so it costs one small object on the
+     * heap however long the lyrics are.
+     * @param columns the columns of the library
+     * @param row the row of the song in the columns
+     */
+    public Song(final SongColumns columns, final int row) {
+        super(null, null);
+        this.album = null;
+        this.tags = null;
+        this.lyrics = null;
+        this.lyricsLowerCase = null;
+        this.genre = null;
+        this.releaseYear = null;
+        this.artist = null;
+        this.columns = columns;
+        this.row = row;
+    }
 
-        return this.getAlbum().equalsIgnoreCase(albumName);
+    /**
+     * Creates a new song with the same details as another one, for example from the
+     * library loaded once for all runs. The copy has no ordinal yet and shares with the
+     * original the data computed from its text, or the columns of a view.
+     * @param song the song to copy
+     */
+    public Song(final Song song) {
+        super(song.columns == null ? song.getName() : null,
+                song.columns == null ? song.getDuration() : null);
+        this.album = song.album;
+        this.tags = song.tags;
+        this.lyrics = song.lyrics;
+        this.lyricsLowerCase = song.lyricsLowerCase;
+        this.genre = song.genre;
+        this.releaseYear = song.releaseYear;
+        this.artist = song.artist;
+        this.columns = song.columns;
+        this.row = song.row;
     }
 
     @Override
-    public boolean matchesTags(final ArrayList<String> tagsNames) {
-        List<String> songTags = new ArrayList<>();
-        for (String tag : this.getTags()) {
-            songTags.add(tag.toLowerCase());
-        }
-
-        for (String tag : tagsNames) {
-            if (!songTags.contains(tag.toLowerCase())) {
-                return false;
-            }
-        }
-        return true;
+    public String getName() {
+        return columns == null ? super.getName() : columns.getName(row);
     }
+
     @Override
-    public boolean matchesLyrics(final String lyricsNames) {
-        return this.getLyrics().toLowerCase().contains(lyricsNames.toLowerCase());
+    public Integer getDuration() {
+        return columns == null ? super.getDuration() : columns.getDuration(row);
     }
 
-    @Override
-    public boolean matchesGenre(final String genreName) {
+    /**
+     * @return the album of the song
+     */
+    public String getAlbum() {
+        return columns == null ? album : columns.getAlbum(row);
+    }
 
-        return this.getGenre().equalsIgnoreCase(genreName);
+    /**
+     * @return the tags of the song
+     */
+    public ArrayList<String> getTags() {
+        return columns == null ? tags : columns.getTags(row);
     }
 
-    @Override
-    public boolean matchesArtist(final String artistName) {
+    /**
+     * @return the lyrics of the song
+     */
+    public String getLyrics() {
+        return columns == null ? lyrics : columns.getLyrics(row);
+    }
 
-        return this.getArtist().equalsIgnoreCase(artistName);
+    /**
+     * @return the lyrics of the song in lower case
+     */
+    public String getLyricsLowerCase() {
+        return columns == null ? lyricsLowerCase : columns.getLyricsLowerCase(row);
+    }
+
+    /**
+     * @return the genre of the song
+     */
+    public String getGenre() {
+        return columns == null ? genre : columns.getGenre(row);
+    }
+
+    /**
+     * @return the release year of the song
+     */
+    public Integer getReleaseYear() {
+        return columns == null ? releaseYear : columns.getReleaseYear(row);
+    }
+
+    /**
+     * @return the artist of the song
+     */
+    public String getArtist() {
+        return columns == null ? artist : columns.getArtist(row);
+    }
+
+    @Override
+    public boolean matchesLyrics(final String lyricsNames) {
+        return getLyricsLowerCase().contains(lyricsNames.toLowerCase());
     }
 
     @Override
@@ -81,17 +171,4 @@ public final class Song extends AudioFile {
             return year == Integer.parseInt(query);
         }
     }
-
-    /**
-     * Used to increase the number of likes.
-     */
-    public void like() {
-        likes++;
-    }
-    /**
-     * Used to decrease the number of likes.
-     */
-    public void dislike() {
-        likes--;
-    }
 }
@@ -2,8 +2,6 @@ package app.audio;
 
 import lombok.Getter;
 
-import java.util.ArrayList;
-
 @Getter
 public abstract class LibraryEntry {
     private final String name;
@@ -20,22 +18,6 @@ public abstract class LibraryEntry {
     public final boolean matchesName(final String nameEntry) {
         return getName().toLowerCase().startsWith(nameEntry.toLowerCase());
     }
-    /**
-     * Checks if the album of the LibraryEntry matches a specified string.
-     * @param album The album to compare with the entry's album.
-     * @return always false.
-     */
-    public boolean matchesAlbum(final String album) {
-        return false;
-    }
-    /**
-     * Checks if the tags of the LibraryEntry matches a specified string.
-     * @param tags The tags to compare with the entry's tags.
-     * @return always false.
-     */
-    public boolean matchesTags(final ArrayList<String> tags) {
-        return false;
-    }
     /**
      * Checks if the lyrics of the LibraryEntry matches a specified string.
      * @param lyrics The lyrics to compare with the entry's lyrics.
@@ -44,22 +26,6 @@ public abstract class LibraryEntry {
     public boolean matchesLyrics(final String lyrics) {
         return false;
     }
-    /**
-     * Checks if the genre of the LibraryEntry matches a specified genre.
-     * @param genre The album to compare with the entry's genre.
-     * @return always false.
-     */
-    public boolean matchesGenre(final String genre) {
-        return false;
-    }
-    /**
-     * Checks if the artist of the LibraryEntry matches a specified string.
-     * @param artist The artist to compare with the entry's artist.
-     * @return always false.
-     */
-    public boolean matchesArtist(final String artist) {
-        return false;
-    }
     /**
      * Checks if the release year of the LibraryEntry matches a specified string.
      * @param releaseYear The release year to compare with the entry's release year.
@@ -0,0 +1,602 @@
+package app.catalog;
+
+import app.audio.Collections.Album;
+import app.audio.Collections.Playlist;
+import app.audio.Collections.Podcast;
+import app.audio.Files.Song;
+import app.audio.LibraryEntry;
+import app.searchBar.Filters;
+import app.user.User;
+import app.utils.Enums;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The store behind Admin. It keeps everything registered in the system in insertion order
+ * (the order in which searches and statistics see them) together with hash indexes, so that
+ * looking something up by name or owner does not need a scan over the whole library.
+ * Songs, albums and playlists get dense ordinals when they are registered, and their likes
+ * and followers are int counters in columns indexed by those ordinals.
+ * The collections are only changed under the exclusive lock of Admin. Likes and follows
+ * are the exception: they are published under the shared lock, from the threads of
+ * several users at once, through the atomic counters, the synchronized leaderboards and
+ * the synchronized reverse indexes.
+ */
+public final class Catalog {
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int OWNER_SHIFT = 32;
+    /**
+     * Set this system property to true to run without the lyrics index, for example when
+     * memory is tight. Lyrics searches then check every song.
+     */
+    public static final String NO_LYRICS_INDEX = "globalwaves.noLyricsIndex";
+
+    private long nextOrder = 0;
+    private final Map<String, Long> userOrder = new HashMap<>();
+    private final Map<String, PrefixIndex<LibraryEntry>> nameIndexes = new HashMap<>();
+    /**
+     * The order keys the albums, playlists and podcasts were indexed by name with, needed to
+     * remove them again; the order keys of users are in userOrder.
+     */
+    private final Map<LibraryEntry, Long> nameOrder = new IdentityHashMap<>();
+
+    private final Map<String, User> usersByName = new LinkedHashMap<>();
+    private final Map<Enums.userType, Map<String, User>> usersByType =
+            new EnumMap<>(Enums.userType.class);
+
+    private final SongIndex songs = new SongIndex(!Boolean.getBoolean(NO_LYRICS_INDEX));
+    private final Map<String, List<Song>> songsByName = new HashMap<>();
+    private final Map<String, List<Song>> songsByArtist = new HashMap<>();
+
+    private final Map<String, Album> albumsByKey = new HashMap<>();
+    private final Map<Song, Album> albumsBySong = new IdentityHashMap<>();
+
+    private final LinkedHashSet<Podcast> podcasts = new LinkedHashSet<>();
+    private final Map<String, List<Podcast>> podcastsByName = new HashMap<>();
+    private final Map<String, List<Podcast>> podcastsByOwner = new HashMap<>();
+
+    private final Leaderboard<Song> songsByLikes = new Leaderboard<>((first, second) -> 0);
+    private final Leaderboard<Album> albumsByLikes =
+            new Leaderboard<>(Comparator.comparing(Album::getName));
+    private final Leaderboard<User> artistsByLikes = new Leaderboard<>((first, second) -> 0);
+    private final Leaderboard<Playlist> playlistsByFollowers =
+            new Leaderboard<>(Comparator.comparingInt(Playlist::getTimestamp));
+
+    private final References references = new References();
+
+    private int albumCount = 0;
+    private int playlistCount = 0;
+    private final IntColumn songLikes = new IntColumn();
+    private final IntColumn albumLikes = new IntColumn();
+    private final IntColumn playlistFollowers = new IntColumn();
+    private final AtomicLong likesVersion = new AtomicLong();
+
+    public Catalog() {
+        for (Enums.userType type : Enums.userType.values()) {
+            usersByType.put(type, new LinkedHashMap<>());
+        }
+        for (String type : new String[]{"playlist", "podcast", "album", "artist", "host"}) {
+            nameIndexes.put(type, new PrefixIndex<>());
+        }
+    }
+
+    /**
+     * Answers a "name starts with" search from the name index of the given type.
+     * @param type the searched type (song, playlist, podcast, album, artist or host)
+     * @param prefix the start of the name, case is ignored
+     * @return a read only view over the matching entries, in the same order a scan of the
+     * library would give, valid until the entries of that type change
+     */
+    public List<LibraryEntry> getEntriesByName(final String type, final String prefix) {
+        if (type.equals("song")) {
+            return Collections.unmodifiableList(songs.startingWith(prefix));
+        }
+        PrefixIndex<LibraryEntry> index = nameIndexes.get(type);
+        if (index == null) {
+            return List.of();
+        }
+        return index.startingWith(prefix);
+    }
+
+    // Users
+
+    /**
+     * Registers a user, indexing it by username and by type.
+     * @param user the user to register
+     */
+    public void addUser(final User user) {
+        usersByName.put(user.getUsername(), user);
+        usersByType.get(user.getType()).put(user.getUsername(), user);
+        long order = nextOrder++;
+        userOrder.put(user.getUsername(), order);
+        if (user.getType() == Enums.userType.ARTIST) {
+            nameIndexes.get("artist").add(user, order);
+            artistsByLikes.add(user, 0, order);
+        }
+        if (user.getType() == Enums.userType.HOST) {
+            nameIndexes.get("host").add(user, order);
+        }
+    }
+
+    /**
+     * Unregisters a user from all the user indexes. The albums and playlists of the user
+     * are only reachable through their owner, so they leave the library too.
+     * @param user the user to remove
+     */
+    public void removeUser(final User user) {
+        usersByName.remove(user.getUsername());
+        usersByType.get(user.getType()).remove(user.getUsername());
+        Long order = userOrder.remove(user.getUsername());
+        if (order != null) {
+            nameIndexes.get("artist").remove(user, order);
+            nameIndexes.get("host").remove(user, order);
+        }
+        artistsByLikes.remove(user);
+        for (Album album : user.getAlbums()) {
+            albumsByKey.remove(key(album.getOwner(), album.getName()));
+            unindexName("album", album);
+            albumsByLikes.remove(album);
+            for (Song song : album.getSongs()) {
+                albumsBySong.remove(song);
+            }
+        }
+        for (Playlist playlist : user.getPlaylists()) {
+            unindexName("playlist", playlist);
+            playlistsByFollowers.remove(playlist);
+            references.forgetPlaylist(playlist);
+        }
+        references.removeUser(user);
+    }
+
+    /**
+     * @param username the username we are looking for
+     * @return the user with that username or null if there is none
+     */
+    public User getUser(final String username) {
+        return usersByName.get(username);
+    }
+
+    /**
+     * @return a copy of all the users, in the order they were registered
+     */
+    public List<User> getUsers() {
+        return new ArrayList<>(usersByName.values());
+    }
+
+    /**
+     * @param type the type of users we want
+     * @return a copy of the users with the given type, in the order they were registered
+     */
+    public List<User> getUsers(final Enums.userType type) {
+        return new ArrayList<>(usersByType.get(type).values());
+    }
+
+    /**
+     * @param type the type of users we want
+     * @return a read only view over the users with the given type
+     */
+    public Collection<User> usersOfType(final Enums.userType type) {
+        return Collections.unmodifiableCollection(usersByType.get(type).values());
+    }
+
+    /**
+     * @return a read only view over all the users
+     */
+    public Collection<User> users() {
+        return Collections.unmodifiableCollection(usersByName.values());
+    }
+
+    /**
+     * @return the reverse indexes of who references what
+     */
+    public References references() {
+        return references;
+    }
+
+    // Songs
+
+    /**
+     * Registers a song and indexes it by name, artist, album, genre and tags.
+     * @param song the song to register
+     */
+    public void addSong(final Song song) {
+        if (!songs.add(song)) {
+            return;
+        }
+        songsByName.computeIfAbsent(song.getName(), k -> new ArrayList<>()).add(song);
+        songsByArtist.computeIfAbsent(song.getArtist(), k -> new ArrayList<>()).add(song);
+        songsByLikes.add(song, getLikes(song), song.getOrdinal());
+    }
+
+    /**
+     * Registers all the given songs, keeping their order.
+     * @param songsToAdd the songs to register
+     */
+    public void addSongs(final Collection<Song> songsToAdd) {
+        for (Song song : songsToAdd) {
+            addSong(song);
+        }
+    }
+
+    /**
+     * Unregisters a song from the library and from the song indexes.
+     * @param song the song to remove
+     */
+    public void removeSong(final Song song) {
+        if (!songs.remove(song)) {
+            return;
+        }
+        removeFromIndex(songsByName, song.getName(), song);
+        removeFromIndex(songsByArtist, song.getArtist(), song);
+        songsByLikes.remove(song);
+    }
+
+    /**
+     * Unregisters all the given songs.
+     * @param songsToRemove the songs to remove
+     */
+    public void removeSongs(final Collection<Song> songsToRemove) {
+        for (Song song : songsToRemove) {
+            removeSong(song);
+        }
+    }
+
+    /**
+     * @return a copy of the songs, in library order
+     */
+    public List<Song> getSongs() {
+        return new ArrayList<>(songs.songs());
+    }
+
+    /**
+     * @return a read only view over the songs, in library order
+     */
+    public Collection<Song> songs() {
+        return songs.songs();
+    }
+
+    /**
+     * Answers the indexed filters of a song search (name, tags, genre, artist, album)
+     * from the song indexes.
+     * @param filters the filters of the search
+     * @return the songs matching those filters, in library order, found while they are read
+     */
+    public Iterable<Song> getSongCandidates(final Filters filters) {
+        return songs.candidates(filters);
+    }
+
+    /**
+     * @param name the exact name of the song
+     * @return the songs with that name, in library order
+     */
+    public List<Song> getSongsByName(final String name) {
+        return new ArrayList<>(songsByName.getOrDefault(name, Collections.emptyList()));
+    }
+
+    /**
+     * @param artist the exact name of the artist
+     * @return the songs of that artist, in library order
+     */
+    public List<Song> getSongsByArtist(final String artist) {
+        return new ArrayList<>(songsByArtist.getOrDefault(artist, Collections.emptyList()));
+    }
+
+    // Albums
+
+    /**
+     * Registers an album together with its songs.
+     * @param album the album to register
+     */
+    public void addAlbum(final Album album) {
+        albumsByKey.put(key(album.getOwner(), album.getName()), album);
+        long order = ownedOrder(album.getOwner());
+        indexName("album", album, order);
+        addSongs(album.getSongs());
+
+        if (album.getOrdinal() < 0) {
+            album.setOrdinal(albumCount++);
+        }
+        int likes = 0;
+        for (Song song : album.getSongs()) {
+            albumsBySong.put(song, album);
+            likes += getLikes(song);
+        }
+        albumLikes.set(album.getOrdinal(), likes);
+        albumsByLikes.add(album, likes, order);
+        User artist = usersByName.get(album.getOwner());
+        if (artist != null) {
+            artistsByLikes.change(artist, likes);
+        }
+    }
+
+    /**
+     * Unregisters an album together with its songs.
+     * @param album the album to remove
+     */
+    public void removeAlbum(final Album album) {
+        albumsByKey.remove(key(album.getOwner(), album.getName()));
+        unindexName("album", album);
+        removeSongs(album.getSongs());
+
+        if (albumsByLikes.contains(album)) {
+            User artist = usersByName.get(album.getOwner());
+            if (artist != null) {
+                artistsByLikes.change(artist, -albumLikes.get(album.getOrdinal()));
+            }
+            albumsByLikes.remove(album);
+        }
+        for (Song song : album.getSongs()) {
+            albumsBySong.remove(song);
+        }
+    }
+
+    /**
+     * @param owner the artist of the album
+     * @param name the name of the album
+     * @return the album or null if the artist has no album with that name
+     */
+    public Album getAlbum(final String owner, final String name) {
+        return albumsByKey.get(key(owner, name));
+    }
+
+    /**
+     * Albums are kept by their artists, so the order is the order of the artists and then
+     * the order in which every artist added them.
+     * @return all the albums
+     */
+    public List<Album> getAlbums() {
+        List<Album> albums = new ArrayList<>();
+        for (User artist : usersByType.get(Enums.userType.ARTIST).values()) {
+            albums.addAll(artist.getAlbums());
+        }
+        return albums;
+    }
+
+    // Playlists
+
+    /**
+     * Registers a playlist that was just created by its owner.
+     * @param playlist the new playlist
+     */
+    public void addPlaylist(final Playlist playlist) {
+        long order = ownedOrder(playlist.getOwner());
+        indexName("playlist", playlist, order);
+        if (playlist.getOrdinal() < 0) {
+            playlist.setOrdinal(playlistCount++);
+        }
+        playlistsByFollowers.add(playlist, getFollowers(playlist), order);
+    }
+
+    /**
+     * Gives a playlist read from a checkpoint its ordinal and its followers. A playlist
+     * that is still in the library must then be registered with addPlaylist.
+     * @param playlist the restored playlist
+     * @param followers the number of followers it had
+     */
+    public void restoreFollowers(final Playlist playlist, final int followers) {
+        if (playlist.getOrdinal() < 0) {
+            playlist.setOrdinal(playlistCount++);
+        }
+        playlistFollowers.set(playlist.getOrdinal(), followers);
+    }
+
+    /**
+     * Playlists are kept by their owners, in the order of the users.
+     * @return all the playlists
+     */
+    public List<Playlist> getPlaylists() {
+        List<Playlist> playlists = new ArrayList<>();
+        for (User user : usersByName.values()) {
+            playlists.addAll(user.getPlaylists());
+        }
+        return playlists;
+    }
+
+    /**
+     * @param owner the username of the owner
+     * @return the playlists created by that user
+     */
+    public List<Playlist> getPlaylistsByOwner(final String owner) {
+        User user = usersByName.get(owner);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(user.getPlaylists());
+    }
+
+    // Counters and leaderboards
+
+    /**
+     * @param song a song
+     * @return the number of likes of the song, 0 if it was never registered
+     */
+    public int getLikes(final Song song) {
+        return songLikes.get(song.getOrdinal());
+    }
+
+    /**
+     * @param playlist a playlist
+     * @return the number of followers of the playlist, 0 if it was never registered
+     */
+    public int getFollowers(final Playlist playlist) {
+        return playlistFollowers.get(playlist.getOrdinal());
+    }
+
+    /**
+     * @return a number that changes whenever the likes of any song change
+     */
+    public long getLikesVersion() {
+        return likesVersion.get();
+    }
+
+    /**
+     * Changes the likes of a song and publishes the change to the album of the song and to
+     * the song, album and artist leaderboards. Can be called by several threads at once.
+     * @param song the song that was liked or unliked
+     * @param delta the change in the number of likes
+     */
+    public void addSongLikes(final Song song, final int delta) {
+        songLikes.add(song.getOrdinal(), delta);
+        likesVersion.incrementAndGet();
+        songsByLikes.change(song, delta);
+        Album album = albumsBySong.get(song);
+        if (album == null || !albumsByLikes.contains(album)) {
+            return;
+        }
+        albumLikes.add(album.getOrdinal(), delta);
+        albumsByLikes.change(album, delta);
+        User artist = usersByName.get(album.getOwner());
+        if (artist != null) {
+            artistsByLikes.change(artist, delta);
+        }
+    }
+
+    /**
+     * Changes the followers of a playlist and publishes the change to the playlist
+     * leaderboard. Can be called by several threads at once.
+     * @param playlist the playlist that was followed or unfollowed
+     * @param delta the change in the number of followers
+     */
+    public void addPlaylistFollowers(final Playlist playlist, final int delta) {
+        playlistFollowers.add(playlist.getOrdinal(), delta);
+        playlistsByFollowers.change(playlist, delta);
+    }
+
+    /**
+     * @param count how many songs we want
+     * @return the songs with the most likes, ties kept in library order
+     */
+    public List<Song> getTopSongs(final int count) {
+        return songsByLikes.top(count);
+    }
+
+    /**
+     * @param count how many albums we want
+     * @return the albums whose songs have the most likes, ties ordered by name
+     */
+    public List<Album> getTopAlbums(final int count) {
+        return albumsByLikes.top(count);
+    }
+
+    /**
+     * @param count how many artists we want
+     * @return the artists whose album songs have the most likes, ties kept in user order
+     */
+    public List<User> getTopArtists(final int count) {
+        return artistsByLikes.top(count);
+    }
+
+    /**
+     * @param count how many playlists we want
+     * @return the playlists with the most followers, ties ordered by creation time
+     */
+    public List<Playlist> getTopPlaylists(final int count) {
+        return playlistsByFollowers.top(count);
+    }
+
+    // Podcasts
+
+    /**
+     * Registers a podcast and indexes it by name and owner.
+     * @param podcast the podcast to register
+     */
+    public void addPodcast(final Podcast podcast) {
+        if (!podcasts.add(podcast)) {
+            return;
+        }
+        indexName("podcast", podcast, nextOrder++);
+        podcastsByName.computeIfAbsent(podcast.getName(), k -> new ArrayList<>()).add(podcast);
+        podcastsByOwner.computeIfAbsent(podcast.getOwner(), k -> new ArrayList<>()).add(podcast);
+    }
+
+    /**
+     * Unregisters a podcast. Only the exact instance that was registered is removed.
+     * @param podcast the podcast to remove
+     */
+    public void removePodcast(final Podcast podcast) {
+        if (!podcasts.remove(podcast)) {
+            return;
+        }
+        unindexName("podcast", podcast);
+        removeFromIndex(podcastsByName, podcast.getName(), podcast);
+        removeFromIndex(podcastsByOwner, podcast.getOwner(), podcast);
+    }
+
+    /**
+     * @return a copy of the podcasts, in library order
+     */
+    public List<Podcast> getPodcasts() {
+        return new ArrayList<>(podcasts);
+    }
+
+    /**
+     * @return a read only view over the podcasts, in library order
+     */
+    public Collection<Podcast> podcasts() {
+        return Collections.unmodifiableCollection(podcasts);
+    }
+
+    /**
+     * @param name the exact name of the podcast
+     * @return true if a podcast with this name is registered
+     */
+    public boolean hasPodcastNamed(final String name) {
+        return podcastsByName.containsKey(name);
+    }
+
+    /**
+     * @param owner the username of the owner
+     * @return the podcasts registered for that owner
+     */
+    public List<Podcast> getPodcastsByOwner(final String owner) {
+        return new ArrayList<>(podcastsByOwner.getOrDefault(owner, Collections.emptyList()));
+    }
+
+    /**
+     * Entries kept by their owner are listed owner by owner, so their order key starts with
+     * the order of the owner and ends with the order in which they were added.
+     */
+    private long ownedOrder(final String owner) {
+        long ownerOrder = userOrder.getOrDefault(owner, nextOrder);
+        return (ownerOrder << OWNER_SHIFT) | nextOrder++;
+    }
+
+    private void indexName(final String type, final LibraryEntry entry, final long order) {
+        nameOrder.put(entry, order);
+        nameIndexes.get(type).add(entry, order);
+    }
+
+    private void unindexName(final String type, final LibraryEntry entry) {
+        Long order = nameOrder.remove(entry);
+        if (order != null) {
+            nameIndexes.get(type).remove(entry, order);
+        }
+    }
+
+    private static String key(final String owner, final String name) {
+        return owner + KEY_SEPARATOR + name;
+    }
+
+    private static <T> void removeFromIndex(final Map<String, List<T>> index, final String key,
+                                            final T value) {
+        List<T> values = index.get(key);
+        if (values == null) {
+            return;
+        }
+        values.remove(value);
+        if (values.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
@@ -0,0 +1,974 @@
+package app.catalog;
+
+import app.audio.Collections.Album;
+import app.audio.Collections.AudioCollection;
+import app.audio.Collections.Playlist;
+import app.audio.Collections.Podcast;
+import app.audio.Files.AudioFile;
+import app.audio.Files.Episode;
+import app.audio.Files.Song;
+import app.audio.LibraryEntry;
+import app.player.Player;
+import app.player.PlayerSource;
+import app.player.PodcastBookmark;
+import app.searchBar.SearchBar;
+import app.user.Announcement;
+import app.user.Event;
+import app.user.Merch;
+import app.user.User;
+import app.utils.Enums;
+import fileio.input.SongInput;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A binary snapshot of the whole state of the system: the users with their players,
+ * searches and pages, the library with its likes and followers, and the current timestamp.
+ * Reading one takes a fraction of the time a replay of the commands takes, so a long
+ * simulation can be resumed from the middle.
+ * <p>
+ * The file starts with a magic number, the version of the format and the timestamp, and
+ * ends with the magic number again, so a truncated file is rejected. In between are the
+ * tables of episodes, albums, songs, podcasts, playlists and users, then the state of every
+ * user. Numbers are big endian ints; strings are their UTF-8 length followed by the bytes,
+ * with -1 for null. Every entry is written once and referenced by its position in its
+ * table, so an entry shared by several owners (an episode of two podcasts, a song of many
+ * playlists) is shared again after reading. Entries that left the library but can still be
+ * reached, for example a removed song in a playlist, are written too and read back without
+ * being registered.
+ * The registered entries are registered again in the order they were originally
+ * registered in, so searches and rankings list them in the same order.
+ */
+public final class Checkpoint {
+    private static final int MAGIC = 0x47574350;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte NONE = 0;
+    private static final byte SONG = 1;
+    private static final byte EPISODE = 2;
+    private static final byte PLAYLIST = 3;
+    private static final byte ALBUM = 4;
+    private static final byte PODCAST = 5;
+    private static final byte USER = 6;
+
+    private static final byte UNREGISTERED = 0;
+    private static final byte REGISTERED = 1;
+    private static final byte REMOVED = 2;
+
+    @Getter
+    private final Catalog catalog;
+    @Getter
+    private final int timestamp;
+
+    /**
+     * @param catalog the state to write
+     * @param timestamp the current timestamp
+     */
+    public Checkpoint(final Catalog catalog, final int timestamp) {
+        this.catalog = catalog;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Writes the checkpoint. The file is written next to the given one and moved in place
+     * once complete, so the previous checkpoint stays readable if writing fails.
+     * Nothing may change the state while it is written.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(timestamp);
+            new Writer(catalog, out).write();
+            out.putInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint into a new catalog.
+     * @param path the file to read
+     * @return the checkpoint, whose catalog is ready to replace the current one
+     * @throws IOException if the file cannot be read or is not a complete checkpoint of
+     * this version
+     */
+    public static Checkpoint read(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if (in.getInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + " has version " + version + ", expected "
+                        + VERSION);
+            }
+            int timestamp = in.getInt();
+            Catalog catalog = new Reader(in).read();
+            if (in.getInt() != MAGIC) {
+                throw new IOException(path + " is not a complete checkpoint");
+            }
+            return new Checkpoint(catalog, timestamp);
+        }
+    }
+
+    /**
+     * Entries of one type in the order they are written, with their positions.
+     */
+    private static final class Table<T> {
+        private final List<T> entries = new ArrayList<>();
+        private final Map<T, Integer> ids = new IdentityHashMap<>();
+
+        boolean add(final T entry) {
+            if (entry == null || ids.containsKey(entry)) {
+                return false;
+            }
+            ids.put(entry, entries.size());
+            entries.add(entry);
+            return true;
+        }
+
+        int id(final T entry) {
+            return entry == null ? -1 : ids.get(entry);
+        }
+
+        void sort(final Comparator<T> order) {
+            entries.sort(order);
+            for (int i = 0; i < entries.size(); i++) {
+                ids.put(entries.get(i), i);
+            }
+        }
+    }
+
+    private static final class Writer {
+        private final Catalog catalog;
+        private final Output out;
+        private final Table<Episode> episodes = new Table<>();
+        private final Table<Album> albums = new Table<>();
+        private final Table<Song> songs = new Table<>();
+        private final Table<Podcast> podcasts = new Table<>();
+        private final Table<Playlist> playlists = new Table<>();
+        private final Table<User> users = new Table<>();
+
+        Writer(final Catalog catalog, final Output out) {
+            this.catalog = catalog;
+            this.out = out;
+        }
+
+        void write() throws IOException {
+            collect();
+            writeEpisodes();
+            writeAlbums();
+            writeSongs();
+            writePodcasts();
+            writePlaylists();
+            writeUsers();
+        }
+
+        /**
+         * Finds every entry that can be reached from the library and the users. The
+         * registered users, albums, playlists and podcasts come first, in library order.
+         */
+        private void collect() {
+            for (User user : catalog.users()) {
+                users.add(user);
+            }
+            for (Song song : catalog.songs()) {
+                songs.add(song);
+            }
+            for (Podcast podcast : catalog.podcasts()) {
+                addPodcast(podcast);
+            }
+            for (int i = 0; i < users.entries.size(); i++) {
+                User user = users.entries.get(i);
+                for (Album album : user.getAlbums()) {
+                    addEntry(album);
+                }
+                for (Playlist playlist : user.getPlaylists()) {
+                    addEntry(playlist);
+                }
+                for (Playlist playlist : user.getFollowedPlaylists()) {
+                    addEntry(playlist);
+                }
+                for (Song song : user.getLikedSongs()) {
+                    songs.add(song);
+                }
+                for (Episode episode : user.getEpisodesHost()) {
+                    episodes.add(episode);
+                }
+                for (Podcast podcast : user.getPodcastsHost()) {
+                    addPodcast(podcast);
+                }
+                PlayerSource source = user.getPlayer().getSource();
+                if (source != null) {
+                    addEntry(source.getAudioCollection());
+                    addEntry(source.getAudioFile());
+                }
+                for (LibraryEntry result : user.getSearchBar().getResults()) {
+                    addEntry(result);
+                }
+                addEntry(user.getSearchBar().getLastSelected());
+                users.add(user.getLastHost());
+                users.add(user.getLastArtist());
+            }
+            // Songs are registered again in ordinal order, so they keep their relative order.
+            songs.sort(Comparator.comparingInt(song -> song.getOrdinal() < 0
+                    ? Integer.MAX_VALUE : song.getOrdinal()));
+        }
+
+        private void addEntry(final LibraryEntry entry) {
+            if (entry instanceof Song) {
+                Song song = (Song) entry;
+                songs.add(song);
+            } else if (entry instanceof Episode) {
+                Episode episode = (Episode) entry;
+                episodes.add(episode);
+            } else if (entry instanceof Album) {
+                Album album = (Album) entry;
+                if (albums.add(album)) {
+                    for (Song song : album.getSongs()) {
+                        songs.add(song);
+                    }
+                }
+            } else if (entry instanceof Playlist) {
+                Playlist playlist = (Playlist) entry;
+                if (playlists.add(playlist)) {
+                    for (Song song : playlist.getSongs()) {
+                        songs.add(song);
+                    }
+                }
+            } else if (entry instanceof Podcast) {
+                Podcast podcast = (Podcast) entry;
+                addPodcast(podcast);
+            } else if (entry instanceof User) {
+                User user = (User) entry;
+                users.add(user);
+            }
+        }
+
+        private void addPodcast(final Podcast podcast) {
+            if (podcasts.add(podcast)) {
+                for (Episode episode : podcast.getEpisodes()) {
+                    episodes.add(episode);
+                }
+            }
+        }
+
+        private void writeEpisodes() throws IOException {
+            out.putInt(episodes.entries.size());
+            for (Episode episode : episodes.entries) {
+                out.putString(episode.getName());
+                out.putNullableInt(episode.getDuration());
+                out.putString(episode.getDescription());
+            }
+        }
+
+        private void writeAlbums() throws IOException {
+            out.putInt(albums.entries.size());
+            for (Album album : albums.entries) {
+                out.putString(album.getName());
+                out.putString(album.getOwner());
+                out.putInt(album.getTimestamp());
+                out.putString(album.getDescription());
+                out.putString(album.getReleaseYear());
+                out.putInt(album.getSongsAlbum().size());
+                for (SongInput song : album.getSongsAlbum()) {
+                    writeSongData(song.getName(), song.getDuration(), song.getAlbum(),
+                            song.getTags(), song.getLyrics(), song.getGenre(),
+                            song.getReleaseYear(), song.getArtist());
+                }
+            }
+        }
+
+        /**
+         * A song of an album is created by the album, so it is written as its position in
+         * the album; any other song is written with all its details.
+         */
+        private void writeSongs() throws IOException {
+            Map<Song, Integer> albumOf = new IdentityHashMap<>();
+            Map<Song, Integer> positionInAlbum = new IdentityHashMap<>();
+            for (Album album : albums.entries) {
+                List<Song> albumSongs = album.getSongs();
+                for (int i = 0; i < albumSongs.size(); i++) {
+                    albumOf.put(albumSongs.get(i), albums.id(album));
+                    positionInAlbum.put(albumSongs.get(i), i);
+                }
+            }
+            Set<Song> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+            registered.addAll(catalog.songs());
+
+            out.putInt(songs.entries.size());
+            for (Song song : songs.entries) {
+                if (song.getOrdinal() < 0) {
+                    out.putByte(UNREGISTERED);
+                } else {
+                    out.putByte(registered.contains(song) ? REGISTERED : REMOVED);
+                }
+                out.putInt(catalog.getLikes(song));
+                Integer album = albumOf.get(song);
+                out.putInt(album == null ? -1 : album);
+                if (album != null) {
+                    out.putInt(positionInAlbum.get(song));
+                } else {
+                    writeSongData(song.getName(), song.getDuration(), song.getAlbum(),
+                            song.getTags(), song.getLyrics(), song.getGenre(),
+                            song.getReleaseYear(), song.getArtist());
+                }
+            }
+        }
+
+        private void writeSongData(final String name, final Integer duration,
+                                   final String album, final List<String> tags,
+                                   final String lyrics, final String genre,
+                                   final Integer releaseYear, final String artist)
+                throws IOException {
+            out.putString(name);
+            out.putNullableInt(duration);
+            out.putString(album);
+            out.putInt(tags == null ? -1 : tags.size());
+            if (tags != null) {
+                for (String tag : tags) {
+                    out.putString(tag);
+                }
+            }
+            out.putString(lyrics);
+            out.putString(genre);
+            out.putNullableInt(releaseYear);
+            out.putString(artist);
+        }
+
+        private void writePodcasts() throws IOException {
+            Set<Podcast> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+            registered.addAll(catalog.podcasts());
+
+            out.putInt(podcasts.entries.size());
+            for (Podcast podcast : podcasts.entries) {
+                out.putBoolean(registered.contains(podcast));
+                out.putString(podcast.getName());
+                out.putString(podcast.getOwner());
+                out.putInt(podcast.getEpisodes().size());
+                for (Episode episode : podcast.getEpisodes()) {
+                    out.putInt(episodes.id(episode));
+                }
+            }
+        }
+
+        private void writePlaylists() throws IOException {
+            out.putInt(playlists.entries.size());
+            for (Playlist playlist : playlists.entries) {
+                out.putString(playlist.getName());
+                out.putString(playlist.getOwner());
+                out.putInt(playlist.getTimestamp());
+                out.putByte((byte) playlist.getVisibility().ordinal());
+                out.putInt(playlist.getOrdinal() < 0 ? -1 : catalog.getFollowers(playlist));
+                List<Song> playlistSongs = playlist.getSongs();
+                out.putInt(playlistSongs.size());
+                for (Song song : playlistSongs) {
+                    out.putInt(songs.id(song));
+                }
+            }
+        }
+
+        private void writeUsers() throws IOException {
+            out.putInt(users.entries.size());
+            for (User user : users.entries) {
+                out.putBoolean(catalog.getUser(user.getUsername()) == user);
+                out.putString(user.getUsername());
+                out.putInt(user.getAge());
+                out.putString(user.getCity());
+                out.putByte((byte) user.getType().ordinal());
+            }
+            for (User user : users.entries) {
+                writeUserState(user);
+                writePlayer(user.getPlayer());
+                writeSearchBar(user.getSearchBar());
+            }
+        }
+
+        private void writeUserState(final User user) throws IOException {
+            out.putByte((byte) user.getMode().ordinal());
+            out.putBoolean(user.isChangedPage());
+            out.putBoolean(user.isLastSearched());
+            out.putBoolean(user.isHome());
+            out.putBoolean(user.isPageSetHost());
+            out.putBoolean(user.isPageSetArtist());
+            out.putInt(users.id(user.getLastHost()));
+            out.putInt(users.id(user.getLastArtist()));
+
+            writeIds(playlists, user.getPlaylists());
+            writeIds(albums, user.getAlbums());
+            writeIds(playlists, user.getFollowedPlaylists());
+            writeIds(songs, user.getLikedSongs());
+            writeIds(episodes, user.getEpisodesHost());
+            writeIds(podcasts, user.getPodcastsHost());
+
+            out.putInt(user.getMerches().size());
+            for (Merch merch : user.getMerches()) {
+                out.putString(merch.getName());
+                out.putString(merch.getOwner());
+                out.putInt(merch.getTimestamp());
+                out.putString(merch.getDescription());
+                out.putInt(merch.getPrice());
+            }
+            out.putInt(user.getEvents().size());
+            for (Event event : user.getEvents()) {
+                out.putString(event.getName());
+                out.putString(event.getOwner());
+                out.putInt(event.getTimestamp());
+                out.putString(event.getDescription());
+                out.putString(event.getDate());
+            }
+            out.putInt(user.getAnnouncements().size());
+            for (Announcement announcement : user.getAnnouncements()) {
+                out.putString(announcement.getName());
+                out.putString(announcement.getOwner());
+                out.putInt(announcement.getTimestamp());
+                out.putString(announcement.getDescription());
+            }
+        }
+
+        private void writePlayer(final Player player) throws IOException {
+            out.putString(player.getType());
+            out.putBoolean(player.isWasPaused());
+            out.putByte((byte) player.getRepeatMode().ordinal());
+            out.putBoolean(player.getShuffle());
+            out.putBoolean(player.getPaused());
+            out.putInt(player.getClock());
+            out.putInt(player.getBookmarks().size());
+            for (PodcastBookmark bookmark : player.getBookmarks()) {
+                out.putString(bookmark.getName());
+                out.putInt(bookmark.getId());
+                out.putInt(bookmark.getTimestamp());
+            }
+
+            PlayerSource source = player.getSource();
+            out.putBoolean(source != null);
+            if (source != null) {
+                out.putByte((byte) source.getType().ordinal());
+                writeEntry(source.getAudioCollection());
+                writeEntry(source.getAudioFile());
+                out.putInt(source.getIndex());
+                out.putInt(source.getIndexShuffled());
+                out.putInt(source.getDuration());
+                out.putInt(source.getIndices().size());
+                for (int index : source.getIndices()) {
+                    out.putInt(index);
+                }
+            }
+        }
+
+        private void writeSearchBar(final SearchBar searchBar) throws IOException {
+            out.putInt(searchBar.getResults().size());
+            for (LibraryEntry result : searchBar.getResults()) {
+                writeEntry(result);
+            }
+            out.putString(searchBar.getLastSearchType());
+            writeEntry(searchBar.getLastSelected());
+        }
+
+        private <T> void writeIds(final Table<T> table, final Iterable<? extends T> entries)
+                throws IOException {
+            List<Integer> ids = new ArrayList<>();
+            for (T entry : entries) {
+                ids.add(table.id(entry));
+            }
+            out.putInt(ids.size());
+            for (int id : ids) {
+                out.putInt(id);
+            }
+        }
+
+        private void writeEntry(final LibraryEntry entry) throws IOException {
+            if (entry instanceof Song) {
+                Song song = (Song) entry;
+                out.putByte(SONG);
+                out.putInt(songs.id(song));
+            } else if (entry instanceof Episode) {
+                Episode episode = (Episode) entry;
+                out.putByte(EPISODE);
+                out.putInt(episodes.id(episode));
+            } else if (entry instanceof Playlist) {
+                Playlist playlist = (Playlist) entry;
+                out.putByte(PLAYLIST);
+                out.putInt(playlists.id(playlist));
+            } else if (entry instanceof Album) {
+                Album album = (Album) entry;
+                out.putByte(ALBUM);
+                out.putInt(albums.id(album));
+            } else if (entry instanceof Podcast) {
+                Podcast podcast = (Podcast) entry;
+                out.putByte(PODCAST);
+                out.putInt(podcasts.id(podcast));
+            } else if (entry instanceof User) {
+                User user = (User) entry;
+                out.putByte(USER);
+                out.putInt(users.id(user));
+            } else {
+                out.putByte(NONE);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final Input in;
+        private final Catalog catalog = new Catalog();
+        private final List<Episode> episodes = new ArrayList<>();
+        private final List<Album> albums = new ArrayList<>();
+        private final List<Song> songs = new ArrayList<>();
+        private final List<Podcast> podcasts = new ArrayList<>();
+        private final List<Playlist> playlists = new ArrayList<>();
+        private final List<Integer> followers = new ArrayList<>();
+        private final List<User> users = new ArrayList<>();
+        private final List<User> registeredUsers = new ArrayList<>();
+
+        Reader(final Input in) {
+            this.in = in;
+        }
+
+        Catalog read() throws IOException {
+            readEpisodes();
+            readAlbums();
+            readSongs();
+            readPodcasts();
+            readPlaylists();
+            readUsers();
+            register();
+            return catalog;
+        }
+
+        private void readEpisodes() throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                episodes.add(new Episode(in.getString(), in.getNullableInt(), in.getString()));
+            }
+        }
+
+        private void readAlbums() throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.getString();
+                String owner = in.getString();
+                int albumTimestamp = in.getInt();
+                String description = in.getString();
+                String releaseYear = in.getString();
+                int songCount = in.getInt();
+                ArrayList<SongInput> songInputs = new ArrayList<>(songCount);
+                for (int j = 0; j < songCount; j++) {
+                    songInputs.add(readSongInput());
+                }
+                albums.add(new Album(name, owner, albumTimestamp, description, releaseYear,
+                        songInputs));
+            }
+        }
+
+        /**
+         * Songs come in ordinal order, so registering them one after the other gives them
+         * the same relative order. Removed songs are registered and removed again, so they
+         * get an ordinal for their likes.
+         */
+        private void readSongs() throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                byte state = in.getByte();
+                int likes = in.getInt();
+                int album = in.getInt();
+                Song song;
+                if (album >= 0) {
+                    song = albums.get(album).getSongs().get(in.getInt());
+                } else {
+                    song = new Song(in.getString(), in.getNullableInt(), in.getString(),
+                            readTags(), in.getString(), in.getString(), in.getNullableInt(),
+                            in.getString());
+                }
+                songs.add(song);
+                if (state != UNREGISTERED) {
+                    catalog.addSong(song);
+                    catalog.addSongLikes(song, likes);
+                    if (state == REMOVED) {
+                        catalog.removeSong(song);
+                    }
+                }
+            }
+        }
+
+        private SongInput readSongInput() throws IOException {
+            SongInput song = new SongInput();
+            song.setName(in.getString());
+            song.setDuration(in.getNullableInt());
+            song.setAlbum(in.getString());
+            song.setTags(readTags());
+            song.setLyrics(in.getString());
+            song.setGenre(in.getString());
+            Integer releaseYear = in.getNullableInt();
+            if (releaseYear != null) {
+                song.setReleaseYear(releaseYear);
+            }
+            song.setArtist(in.getString());
+            return song;
+        }
+
+        private ArrayList<String> readTags() throws IOException {
+            int count = in.getInt();
+            if (count < 0) {
+                return null;
+            }
+            ArrayList<String> tags = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tags.add(in.getString());
+            }
+            return tags;
+        }
+
+        private void readPodcasts() throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                boolean registered = in.getBoolean();
+                String name = in.getString();
+                String owner = in.getString();
+                int episodeCount = in.getInt();
+                List<Episode> podcastEpisodes = new ArrayList<>(episodeCount);
+                for (int j = 0; j < episodeCount; j++) {
+                    podcastEpisodes.add(episodes.get(in.getInt()));
+                }
+                Podcast podcast = new Podcast(name, owner, podcastEpisodes);
+                podcasts.add(podcast);
+                if (registered) {
+                    catalog.addPodcast(podcast);
+                }
+            }
+        }
+
+        private void readPlaylists() throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                Playlist playlist = new Playlist(in.getString(), in.getString(), in.getInt());
+                if (Enums.Visibility.values()[in.getByte()] != playlist.getVisibility()) {
+                    playlist.switchVisibility();
+                }
+                followers.add(in.getInt());
+                int songCount = in.getInt();
+                for (int j = 0; j < songCount; j++) {
+                    playlist.addSong(songs.get(in.getInt()));
+                }
+                playlists.add(playlist);
+            }
+        }
+
+        private void readUsers() throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                boolean registered = in.getBoolean();
+                User user = new User(in.getString(), in.getInt(), in.getString(),
+                        Enums.userType.values()[in.getByte()]);
+                users.add(user);
+                if (registered) {
+                    registeredUsers.add(user);
+                    catalog.addUser(user);
+                }
+            }
+            for (User user : users) {
+                readUserState(user);
+                readPlayer(user.getPlayer());
+                readSearchBar(user.getSearchBar());
+            }
+        }
+
+        private void readUserState(final User user) throws IOException {
+            user.setMode(Enums.UserMode.values()[in.getByte()]);
+            user.setChangedPage(in.getBoolean());
+            boolean searched = in.getBoolean();
+            boolean home = in.getBoolean();
+            boolean onHostPage = in.getBoolean();
+            boolean onArtistPage = in.getBoolean();
+            User host = userOrNull(in.getInt());
+            User artist = userOrNull(in.getInt());
+            user.restoreNavigation(searched, host, artist, home, onHostPage, onArtistPage);
+
+            readIds(playlists, user.getPlaylists());
+            readIds(albums, user.getAlbums());
+            readIds(playlists, user.getFollowedPlaylists());
+            List<Song> liked = new ArrayList<>();
+            readIds(songs, liked);
+            for (Song song : liked) {
+                user.addLikedSong(song);
+            }
+            readIds(episodes, user.getEpisodesHost());
+            readIds(podcasts, user.getPodcastsHost());
+
+            int merchCount = in.getInt();
+            for (int i = 0; i < merchCount; i++) {
+                user.getMerches().add(new Merch(in.getString(), in.getString(), in.getInt(),
+                        in.getString(), in.getInt()));
+            }
+            int eventCount = in.getInt();
+            for (int i = 0; i < eventCount; i++) {
+                user.getEvents().add(new Event(in.getString(), in.getString(), in.getInt(),
+                        in.getString(), in.getString()));
+            }
+            int announcementCount = in.getInt();
+            for (int i = 0; i < announcementCount; i++) {
+                user.getAnnouncements().add(new Announcement(in.getString(), in.getString(),
+                        in.getInt(), in.getString()));
+            }
+        }
+
+        private void readPlayer(final Player player) throws IOException {
+            player.setType(in.getString());
+            player.setWasPaused(in.getBoolean());
+            Enums.RepeatMode repeatMode = Enums.RepeatMode.values()[in.getByte()];
+            boolean shuffle = in.getBoolean();
+            boolean paused = in.getBoolean();
+            int clock = in.getInt();
+            int bookmarkCount = in.getInt();
+            for (int i = 0; i < bookmarkCount; i++) {
+                player.getBookmarks().add(new PodcastBookmark(in.getString(), in.getInt(),
+                        in.getInt()));
+            }
+
+            PlayerSource source = null;
+            if (in.getBoolean()) {
+                Enums.PlayerSourceType type = Enums.PlayerSourceType.values()[in.getByte()];
+                AudioCollection collection = (AudioCollection) readEntry();
+                AudioFile audioFile = (AudioFile) readEntry();
+                int index = in.getInt();
+                int indexShuffled = in.getInt();
+                int remainedDuration = in.getInt();
+                int indexCount = in.getInt();
+                List<Integer> indices = new ArrayList<>(indexCount);
+                for (int i = 0; i < indexCount; i++) {
+                    indices.add(in.getInt());
+                }
+                source = new PlayerSource(type, collection, audioFile, index, indexShuffled,
+                        remainedDuration, indices);
+            }
+            player.restore(source, repeatMode, shuffle, paused, clock);
+        }
+
+        private void readSearchBar(final SearchBar searchBar) throws IOException {
+            int resultCount = in.getInt();
+            List<LibraryEntry> results = new ArrayList<>(resultCount);
+            for (int i = 0; i < resultCount; i++) {
+                results.add(readEntry());
+            }
+            String lastSearchType = in.getString();
+            searchBar.restore(results, lastSearchType, readEntry());
+        }
+
+        /**
+         * Registers the albums and playlists of the registered users in user order, and
+         * puts back what the reverse indexes know about them.
+         */
+        private void register() {
+            for (int i = 0; i < playlists.size(); i++) {
+                if (followers.get(i) >= 0) {
+                    catalog.restoreFollowers(playlists.get(i), followers.get(i));
+                }
+            }
+            for (User user : registeredUsers) {
+                for (Album album : user.getAlbums()) {
+                    catalog.addAlbum(album);
+                }
+                for (Playlist playlist : user.getPlaylists()) {
+                    catalog.addPlaylist(playlist);
+                }
+            }
+
+            References references = catalog.references();
+            for (User user : registeredUsers) {
+                references.loadChanged(user, user.getPlayer().getSource() != null);
+                references.pageChanged(user);
+                for (Song song : user.getLikedSongs()) {
+                    references.liked(user, song);
+                }
+                for (Playlist playlist : user.getFollowedPlaylists()) {
+                    references.followed(user, playlist);
+                }
+            }
+        }
+
+        private <T> void readIds(final List<T> table, final List<? super T> entries)
+                throws IOException {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                entries.add(table.get(in.getInt()));
+            }
+        }
+
+        private User userOrNull(final int id) {
+            return id < 0 ? null : users.get(id);
+        }
+
+        private LibraryEntry readEntry() throws IOException {
+            byte type = in.getByte();
+            if (type == NONE) {
+                return null;
+            }
+            int id = in.getInt();
+            switch (type) {
+                case SONG:
+                    return songs.get(id);
+                case EPISODE:
+                    return episodes.get(id);
+                case PLAYLIST:
+                    return playlists.get(id);
+                case ALBUM:
+                    return albums.get(id);
+                case PODCAST:
+                    return podcasts.get(id);
+                case USER:
+                    return users.get(id);
+                default:
+                    throw new IOException("Unknown entry type " + type);
+            }
+        }
+    }
+
+    /**
+     * Buffered writes to a file channel.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putByte(final byte value) throws IOException {
+            ensure(Byte.BYTES);
+            buffer.put(value);
+        }
+
+        void putBoolean(final boolean value) throws IOException {
+            putByte(value ? (byte) 1 : (byte) 0);
+        }
+
+        void putInt(final int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putNullableInt(final Integer value) throws IOException {
+            putBoolean(value != null);
+            if (value != null) {
+                putInt(value);
+            }
+        }
+
+        void putString(final String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Buffered reads from a file channel.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+        Input(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        byte getByte() throws IOException {
+            ensure(Byte.BYTES);
+            return buffer.get();
+        }
+
+        boolean getBoolean() throws IOException {
+            return getByte() != 0;
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        Integer getNullableInt() throws IOException {
+            return getBoolean() ? getInt() : null;
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) {
+                return null;
+            }
+            ensure(length);
+            String value = new String(buffer.array(), buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        private void ensure(final int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            if (bytes > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(bytes).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of the checkpoint");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package app.catalog;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A column of int counters indexed by ordinal, for example the likes of every song. The
+ * values live in plain int arrays of a fixed size, so a counter costs four bytes and
+ * changing it allocates nothing. Growing the column adds arrays and never copies the
+ * counters, so a counter is never lost while the column grows.
+ * Counters are changed atomically and read with volatile semantics.
+ */
+public final class IntColumn {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private volatile int[][] chunks = new int[0][];
+
+    /**
+     * @param ordinal the ordinal of the counter
+     * @return the value of the counter, 0 for counters never changed
+     */
+    public int get(final int ordinal) {
+        if (ordinal < 0) {
+            return 0;
+        }
+        int[][] current = chunks;
+        int chunk = ordinal >>> CHUNK_BITS;
+        if (chunk >= current.length) {
+            return 0;
+        }
+        return (int) INTS.getVolatile(current[chunk], ordinal & CHUNK_MASK);
+    }
+
+    /**
+     * Changes a counter. Negative ordinals belong to entries that were never registered
+     * and are ignored.
+     * @param ordinal the ordinal of the counter
+     * @param delta how much the counter changes
+     * @return the new value of the counter
+     */
+    public int add(final int ordinal, final int delta) {
+        if (ordinal < 0) {
+            return 0;
+        }
+        int[] chunk = chunkFor(ordinal);
+        return (int) INTS.getAndAdd(chunk, ordinal & CHUNK_MASK, delta) + delta;
+    }
+
+    /**
+     * Sets a counter. Negative ordinals are ignored.
+     * @param ordinal the ordinal of the counter
+     * @param value the new value of the counter
+     */
+    public void set(final int ordinal, final int value) {
+        if (ordinal >= 0) {
+            INTS.setVolatile(chunkFor(ordinal), ordinal & CHUNK_MASK, value);
+        }
+    }
+
+    private int[] chunkFor(final int ordinal) {
+        int chunk = ordinal >>> CHUNK_BITS;
+        int[][] current = chunks;
+        if (chunk < current.length) {
+            return current[chunk];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (chunk >= current.length) {
+                int[][] grown = Arrays.copyOf(current, chunk + 1);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new int[CHUNK_SIZE];
+                }
+                chunks = grown;
+                current = grown;
+            }
+            return current[chunk];
+        }
+    }
+}
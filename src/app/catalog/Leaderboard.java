@@ -0,0 +1,125 @@
+package app.catalog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Entries ranked by a score that changes over time, kept sorted so that the best ones can be
+ * read without sorting everything. Entries with a higher score come first; ties are broken by
+ * the given comparator and then by the order key of the entry, which is its position in
+ * library order. This is the order a stable sort of the library by score would give.
+ * Score changes are published as deltas: the entry is taken out of the ranking, its score is
+ * changed and it is put back in its new place.
+ * All the methods are synchronized, so scores can be published from any thread.
+ * @param <T> the type of the ranked entries
+ */
+public final class Leaderboard<T> {
+    private final TreeSet<Rank<T>> ranking;
+    private final Map<T, Rank<T>> ranks = new IdentityHashMap<>();
+
+    /**
+     * @param tieBreak orders the entries with the same score; it must only look at values
+     *                 that do not change while the entry is ranked
+     */
+    public Leaderboard(final Comparator<? super T> tieBreak) {
+        Comparator<Rank<T>> byScore = (first, second) -> Long.compare(second.score, first.score);
+        this.ranking = new TreeSet<>(byScore
+                .thenComparing((first, second) -> tieBreak.compare(first.entry, second.entry))
+                .thenComparingLong(rank -> rank.order));
+    }
+
+    /**
+     * Ranks a new entry. An entry that is already ranked is left as it is.
+     * @param entry the entry to rank
+     * @param score the current score of the entry
+     * @param order the position of the entry in library order
+     */
+    public synchronized void add(final T entry, final long score, final long order) {
+        if (ranks.containsKey(entry)) {
+            return;
+        }
+        Rank<T> rank = new Rank<>(entry, score, order);
+        ranks.put(entry, rank);
+        ranking.add(rank);
+    }
+
+    /**
+     * Takes an entry out of the ranking.
+     * @param entry the entry to remove
+     */
+    public synchronized void remove(final T entry) {
+        Rank<T> rank = ranks.remove(entry);
+        if (rank != null) {
+            ranking.remove(rank);
+        }
+    }
+
+    /**
+     * Changes the score of a ranked entry. Entries that are not ranked are ignored.
+     * @param entry the entry whose score changed
+     * @param delta how much the score changed
+     */
+    public synchronized void change(final T entry, final long delta) {
+        Rank<T> rank = ranks.get(entry);
+        if (rank == null || delta == 0) {
+            return;
+        }
+        ranking.remove(rank);
+        rank.score += delta;
+        ranking.add(rank);
+    }
+
+    /**
+     * @param entry the entry to check
+     * @return true if this exact entry is ranked
+     */
+    public synchronized boolean contains(final T entry) {
+        return ranks.containsKey(entry);
+    }
+
+    /**
+     * @param entry a ranked entry
+     * @return the current score of the entry, or 0 if it is not ranked
+     */
+    public synchronized long score(final T entry) {
+        Rank<T> rank = ranks.get(entry);
+        return rank == null ? 0 : rank.score;
+    }
+
+    /**
+     * @param count how many entries we want
+     * @return the best ranked entries, at most count of them, best first
+     */
+    public synchronized List<T> top(final int count) {
+        List<T> top = new ArrayList<>(count);
+        Iterator<Rank<T>> iterator = ranking.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            top.add(iterator.next().entry);
+        }
+        return top;
+    }
+
+    /**
+     * @return the number of ranked entries
+     */
+    public synchronized int size() {
+        return ranks.size();
+    }
+
+    private static final class Rank<T> {
+        private final T entry;
+        private long score;
+        private final long order;
+
+        Rank(final T entry, final long score, final long order) {
+            this.entry = entry;
+            this.score = score;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package app.catalog;
+
+import app.audio.Collections.Podcast;
+import app.audio.Files.Episode;
+import app.audio.Files.Song;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fileio.input.EpisodeInput;
+import fileio.input.LibraryInput;
+import fileio.input.PodcastInput;
+import fileio.input.SongInput;
+import fileio.input.UserInput;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The library file parsed once per process. Every run starts from the same library, so
+ * instead of reading and binding the file again for every run, the parsed content is kept
+ * here together with prototypes of the songs and podcasts, which already hold the data
+ * computed from their text. A run only copies the prototypes, and the copies share the
+ * parts that never change.
+ * <p>
+ * With the SONG_COLUMNS system property set to a directory, the songs are kept off the
+ * heap instead: the first load streams them from the library file into mapped columns in
+ * that directory (see SongColumns), the next processes map the columns written before, and
+ * the prototypes are views over the columns.
+ */
+public final class LibrarySnapshot {
+    /**
+     * Set this system property to a directory to keep the songs of the library in mapped
+     * column files there, for libraries too big for the heap.
+     */
+    public static final String SONG_COLUMNS = "globalwaves.songColumns";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<String, LibrarySnapshot> LOADED = new HashMap<>();
+
+    private final long lastModified;
+    private final long length;
+    private final List<UserInput> users;
+    private final List<Song> songs;
+    private final List<Podcast> podcasts;
+
+    private LibrarySnapshot(final File file, final List<UserInput> users,
+                            final List<Song> songs, final List<PodcastInput> podcasts) {
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.users = Collections.unmodifiableList(new ArrayList<>(users));
+        this.songs = Collections.unmodifiableList(songs);
+
+        List<Podcast> podcastPrototypes = new ArrayList<>();
+        for (PodcastInput podcastInput : podcasts) {
+            List<Episode> episodes = new ArrayList<>();
+            for (EpisodeInput episodeInput : podcastInput.getEpisodes()) {
+                episodes.add(new Episode(episodeInput.getName(), episodeInput.getDuration(),
+                        episodeInput.getDescription()));
+            }
+            podcastPrototypes.add(new Podcast(podcastInput.getName(), podcastInput.getOwner(),
+                    Collections.unmodifiableList(episodes)));
+        }
+        this.podcasts = Collections.unmodifiableList(podcastPrototypes);
+    }
+
+    private static LibrarySnapshot parse(final File file) throws IOException {
+        LibraryInput library = MAPPER.readValue(file, LibraryInput.class);
+        List<Song> songPrototypes = new ArrayList<>();
+        for (SongInput songInput : library.getSongs()) {
+            songPrototypes.add(new Song(songInput.getName(), songInput.getDuration(),
+                    songInput.getAlbum(), songInput.getTags(), songInput.getLyrics(),
+                    songInput.getGenre(), songInput.getReleaseYear(), songInput.getArtist()));
+        }
+        return new LibrarySnapshot(file, library.getUsers(), songPrototypes,
+                library.getPodcasts());
+    }
+
+    /**
+     * Reads the library keeping its songs in mapped columns. The songs are written to the
+     * columns one by one as they are parsed, and only when the columns in the directory
+     * were not written for this version of the library.
+     */
+    private static LibrarySnapshot parseToColumns(final File file, final Path directory)
+            throws IOException {
+        String library = file.getCanonicalPath();
+        SongColumns columns = SongColumns.open(directory, library, file.lastModified(),
+                file.length());
+        List<UserInput> users = new ArrayList<>();
+        List<PodcastInput> podcasts = new ArrayList<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(file);
+             SongColumns.Writer writer = columns == null ? SongColumns.write(directory)
+                     : null) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException(file + " is not a library");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals("songs") && writer != null) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        writer.add(MAPPER.readValue(parser, SongInput.class));
+                    }
+                } else if (field.equals("users")) {
+                    users = Arrays.asList(MAPPER.readValue(parser, UserInput[].class));
+                } else if (field.equals("podcasts")) {
+                    podcasts = Arrays.asList(MAPPER.readValue(parser, PodcastInput[].class));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (writer != null) {
+                columns = writer.finish(library, file.lastModified(), file.length());
+            }
+        }
+        return new LibrarySnapshot(file, users, columns.songs(), podcasts);
+    }
+
+    /**
+     * Gives the parsed content of a library file, reading the file only the first time or
+     * when it changed since it was last read.
+     * @param file the library file
+     * @return the snapshot of the library
+     * @throws IOException in case of exceptions to reading
+     */
+    public static synchronized LibrarySnapshot load(final File file) throws IOException {
+        String key = file.getCanonicalPath();
+        LibrarySnapshot snapshot = LOADED.get(key);
+        if (snapshot == null || snapshot.lastModified != file.lastModified()
+                || snapshot.length != file.length()) {
+            String columns = System.getProperty(SONG_COLUMNS);
+            snapshot = columns == null ? parse(file)
+                    : parseToColumns(file, Paths.get(columns));
+            LOADED.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the users of the library
+     */
+    public List<UserInput> getUsers() {
+        return users;
+    }
+
+    /**
+     * Runs must not register these songs, only copies of them.
+     * @return the song prototypes, in library order
+     */
+    public List<Song> getSongs() {
+        return songs;
+    }
+
+    /**
+     * Runs must not register these podcasts, only copies of them.
+     * @return the podcast prototypes, in library order
+     */
+    public List<Podcast> getPodcasts() {
+        return podcasts;
+    }
+}
@@ -0,0 +1,174 @@
+package app.catalog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sorted list of song ordinals, kept in a plain int array. Ordinals are handed out in
+ * increasing order, so adding a new song is an append.
+ */
+public final class PostingList implements SortedOrdinals {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] ordinals = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Adds an ordinal, keeping the list sorted and without duplicates.
+     * @param ordinal the ordinal to add
+     */
+    public void add(final int ordinal) {
+        if (size > 0 && ordinals[size - 1] >= ordinal) {
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position >= 0) {
+                return;
+            }
+            insertAt(-position - 1, ordinal);
+            return;
+        }
+        insertAt(size, ordinal);
+    }
+
+    /**
+     * Removes an ordinal if it is in the list.
+     * @param ordinal the ordinal to remove
+     */
+    public void remove(final int ordinal) {
+        int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the list has no ordinals
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int get(final int index) {
+        return ordinals[index];
+    }
+
+    private void insertAt(final int position, final int ordinal) {
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, ordinals.length * 2);
+        }
+        System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+        ordinals[position] = ordinal;
+        size++;
+    }
+
+    /**
+     * Intersects sorted lists of ordinals in place, without copying them. The ordinals are
+     * produced one at a time, so a search that has enough results stops reading the lists.
+     * The shortest list drives the intersection, and the others are searched with a
+     * galloping search from where the previous ordinal was found, which is cheap when their
+     * sizes are very different. The lists must not change while the result is read.
+     * @param lists the sorted lists to intersect, at least one
+     * @return the sorted ordinals present in every list
+     */
+    public static PrimitiveIterator.OfInt intersection(
+            final List<? extends SortedOrdinals> lists) {
+        SortedOrdinals[] sorted = lists.toArray(new SortedOrdinals[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(SortedOrdinals::size));
+        return new Intersection(sorted);
+    }
+
+    private static final class Intersection implements PrimitiveIterator.OfInt {
+        private final SortedOrdinals[] lists;
+        private final int[] positions;
+        private int next;
+        private boolean ready = false;
+
+        Intersection(final SortedOrdinals[] lists) {
+            this.lists = lists;
+            this.positions = new int[lists.length];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                ready = advance();
+            }
+            return ready;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            return next;
+        }
+
+        /**
+         * Moves every list to the next ordinal they all have.
+         * @return false once the shortest list is exhausted
+         */
+        private boolean advance() {
+            SortedOrdinals shortest = lists[0];
+            while (positions[0] < shortest.size()) {
+                int candidate = shortest.get(positions[0]);
+                boolean everywhere = true;
+                for (int i = 1; i < lists.length; i++) {
+                    positions[i] = search(lists[i], positions[i], candidate);
+                    if (positions[i] == lists[i].size()) {
+                        positions[0] = shortest.size();
+                        return false;
+                    }
+                    int found = lists[i].get(positions[i]);
+                    if (found != candidate) {
+                        positions[0] = search(shortest, positions[0] + 1, found);
+                        everywhere = false;
+                        break;
+                    }
+                }
+                if (everywhere) {
+                    next = candidate;
+                    positions[0]++;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the first position from the given one holding an ordinal not smaller than
+         * the value, or the size of the list if there is none
+         */
+        private static int search(final SortedOrdinals list, final int from, final int value) {
+            int low = from;
+            int step = 1;
+            int high = from;
+            while (high < list.size() && list.get(high) < value) {
+                low = high + 1;
+                high += step;
+                step *= 2;
+            }
+            high = Math.min(high, list.size());
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (list.get(middle) < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
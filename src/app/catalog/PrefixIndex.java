@@ -0,0 +1,336 @@
+package app.catalog;
+
+import app.audio.LibraryEntry;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Case-folded name index used to answer "name starts with" searches without looking at
+ * every entry. Names are kept in a compressed trie, and an entry is stored only at the node
+ * where its name ends, sorted there by its order key, which is the order in which a scan
+ * over the library would have found it. Adding or removing an entry walks the characters of
+ * its name and touches one sorted array, however many entries the index holds.
+ * A search walks down the characters of the prefix to a node and reads the entries below
+ * it in order. That ordered list is merged from the nodes below the first time it is asked
+ * for and kept in the node until an entry below it changes, so repeated searches for the
+ * same prefix cost the length of the prefix plus the entries actually read.
+ * Searches may run in parallel with each other, but not with changes.
+ * @param <T> the type of the indexed entries
+ */
+public final class PrefixIndex<T extends LibraryEntry> {
+    private final Node root = new Node("");
+
+    /**
+     * Adds an entry under its name.
+     * @param entry the entry to index
+     * @param order the position of the entry in library order, different for every entry
+     */
+    public void add(final T entry, final long order) {
+        String key = entry.getName().toLowerCase();
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            node.changed(1);
+            if (depth == key.length()) {
+                node.insert(order, entry);
+                return;
+            }
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                child = new Node(key.substring(depth));
+                node.addChild(child);
+            } else {
+                int common = child.common(key, depth);
+                if (common < child.label.length()) {
+                    child = node.split(child, common);
+                }
+            }
+            depth += child.label.length();
+            node = child;
+        }
+    }
+
+    /**
+     * Removes an entry. Only the exact instance that was added with that order key is
+     * removed.
+     * @param entry the entry to remove
+     * @param order the order key the entry was added with
+     */
+    public void remove(final T entry, final long order) {
+        String key = entry.getName().toLowerCase();
+        Node found = exact(key);
+        if (found == null || !found.delete(order, entry)) {
+            return;
+        }
+
+        Node parent = null;
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            node.changed(-1);
+            if (node.count == 0 && parent != null) {
+                parent.removeChild(node);
+                return;
+            }
+            if (depth == key.length()) {
+                return;
+            }
+            parent = node;
+            node = node.child(key.charAt(depth));
+            depth += node.label.length();
+        }
+    }
+
+    /**
+     * Finds the entries whose name starts with the given prefix, ignoring case.
+     * @param prefix the start of the name
+     * @return a read only view over the matching entries, in library order; it does not
+     * change when the index does
+     */
+    public List<T> startingWith(final String prefix) {
+        Node node = find(prefix.toLowerCase());
+        return node == null ? List.of() : view(node.sorted());
+    }
+
+    /**
+     * @return the number of indexed entries
+     */
+    public int size() {
+        return root.count;
+    }
+
+    private static <E> List<E> view(final Object[] entries) {
+        return new AbstractList<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public E get(final int index) {
+                return (E) entries[index];
+            }
+
+            @Override
+            public int size() {
+                return entries.length;
+            }
+        };
+    }
+
+    /**
+     * @param key a case-folded prefix
+     * @return the node holding every entry whose key starts with the prefix, or null if
+     * there is none
+     */
+    private Node find(final String key) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                return null;
+            }
+            int common = child.common(key, depth);
+            if (depth + common == key.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            depth += common;
+        }
+        return node;
+    }
+
+    /**
+     * @param key a case-folded name
+     * @return the node where the name ends, or null if there is none
+     */
+    private Node exact(final String key) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null || !key.startsWith(child.label, depth)) {
+                return null;
+            }
+            node = child;
+            depth += child.label.length();
+        }
+        return node;
+    }
+
+    /**
+     * A node of the trie. The label is the part of the key between the parent and the
+     * node. The node holds the entries whose key ends here, sorted by order key, and counts
+     * every entry below it.
+     */
+    private static final class Node {
+        private static final long[] NO_ORDERS = new long[0];
+        private static final Object[] NO_ENTRIES = new Object[0];
+
+        private String label;
+        private char[] firsts = new char[0];
+        private Node[] children = new Node[0];
+        private long[] orders = NO_ORDERS;
+        private Object[] entries = NO_ENTRIES;
+        private int size = 0;
+        private int count = 0;
+        /**
+         * Every entry below the node in library order, or null until a search asks for it.
+         * Searches build it under the shared lock, so it is only published once complete.
+         */
+        private volatile Object[] sorted;
+
+        Node(final String label) {
+            this.label = label;
+        }
+
+        void changed(final int delta) {
+            count += delta;
+            sorted = null;
+        }
+
+        /**
+         * @return how many characters of the label match the key from the given position
+         */
+        int common(final String key, final int from) {
+            int length = Math.min(label.length(), key.length() - from);
+            int matched = 0;
+            while (matched < length && label.charAt(matched) == key.charAt(from + matched)) {
+                matched++;
+            }
+            return matched;
+        }
+
+        Node child(final char first) {
+            int position = Arrays.binarySearch(firsts, first);
+            return position < 0 ? null : children[position];
+        }
+
+        void addChild(final Node child) {
+            int position = -Arrays.binarySearch(firsts, child.label.charAt(0)) - 1;
+            firsts = Arrays.copyOf(firsts, firsts.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(firsts, position, firsts, position + 1,
+                    firsts.length - position - 1);
+            System.arraycopy(children, position, children, position + 1,
+                    children.length - position - 1);
+            firsts[position] = child.label.charAt(0);
+            children[position] = child;
+        }
+
+        void removeChild(final Node child) {
+            int position = Arrays.binarySearch(firsts, child.label.charAt(0));
+            char[] keptFirsts = new char[firsts.length - 1];
+            Node[] keptChildren = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(firsts, 0, keptFirsts, 0, position);
+            System.arraycopy(firsts, position + 1, keptFirsts, position,
+                    keptFirsts.length - position);
+            System.arraycopy(children, position + 1, keptChildren, position,
+                    keptChildren.length - position);
+            firsts = keptFirsts;
+            children = keptChildren;
+        }
+
+        /**
+         * Cuts the label of a child after its first characters, putting a new node
+         * without entries of its own between this node and the child.
+         * @return the new node
+         */
+        Node split(final Node child, final int length) {
+            Node middle = new Node(child.label.substring(0, length));
+            middle.count = child.count;
+            children[Arrays.binarySearch(firsts, child.label.charAt(0))] = middle;
+            child.label = child.label.substring(length);
+            middle.addChild(child);
+            return middle;
+        }
+
+        void insert(final long order, final Object entry) {
+            int position = -Arrays.binarySearch(orders, 0, size, order) - 1;
+            if (size == orders.length) {
+                orders = Arrays.copyOf(orders, Math.max(1, size * 2));
+                entries = Arrays.copyOf(entries, orders.length);
+            }
+            System.arraycopy(orders, position, orders, position + 1, size - position);
+            System.arraycopy(entries, position, entries, position + 1, size - position);
+            orders[position] = order;
+            entries[position] = entry;
+            size++;
+        }
+
+        /**
+         * @return false if the entry is not stored here with that order key
+         */
+        boolean delete(final long order, final Object entry) {
+            int position = Arrays.binarySearch(orders, 0, size, order);
+            if (position < 0 || entries[position] != entry) {
+                return false;
+            }
+            System.arraycopy(orders, position + 1, orders, position, size - position - 1);
+            System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+            size--;
+            entries[size] = null;
+            return true;
+        }
+
+        /**
+         * @return every entry below the node, in library order
+         */
+        Object[] sorted() {
+            Object[] result = sorted;
+            if (result == null) {
+                result = merge();
+                sorted = result;
+            }
+            return result;
+        }
+
+        /**
+         * Merges the sorted entries of every node below this one that has entries.
+         */
+        private Object[] merge() {
+            List<Node> holders = new ArrayList<>();
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(this);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                if (node.size > 0) {
+                    holders.add(node);
+                }
+                for (Node child : node.children) {
+                    pending.push(child);
+                }
+            }
+            if (holders.size() == 1) {
+                Node only = holders.get(0);
+                return Arrays.copyOf(only.entries, only.size);
+            }
+
+            // A cursor is {holder, position}, ordered by the order key it points at.
+            PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, holders.size()),
+                    (first, second) -> Long.compare(
+                            holders.get(first[0]).orders[first[1]],
+                            holders.get(second[0]).orders[second[1]]));
+            for (int i = 0; i < holders.size(); i++) {
+                cursors.add(new int[]{i, 0});
+            }
+            Object[] result = new Object[count];
+            int filled = 0;
+            while (!cursors.isEmpty()) {
+                int[] cursor = cursors.poll();
+                Node holder = holders.get(cursor[0]);
+                result[filled++] = holder.entries[cursor[1]];
+                if (++cursor[1] < holder.size) {
+                    cursors.add(cursor);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package app.catalog;
+
+import app.audio.Collections.Playlist;
+import app.audio.Files.Song;
+import app.user.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse indexes from the content of the library to the users that reference it: who has
+ * a source loaded, who is on an artist or host page, who liked a song and who follows a
+ * playlist. The checks and cascades of deleteUser and removeAlbum only need the users in
+ * these sets, instead of looking at every user of the system.
+ * Loaded sources and pages change through user commands that run in parallel, so those
+ * sets are concurrent. Likes and follows may be published by several users at once (see
+ * Admin), so their methods are synchronized.
+ */
+public final class References {
+    private final Set<User> loaded = ConcurrentHashMap.newKeySet();
+    private final Set<User> onArtistPage = ConcurrentHashMap.newKeySet();
+    private final Set<User> onHostPage = ConcurrentHashMap.newKeySet();
+
+    private final Map<Song, Set<User>> likers = new IdentityHashMap<>();
+    private final Map<String, Set<Song>> likedByArtist = new HashMap<>();
+    private final Map<Playlist, Set<User>> followers = new IdentityHashMap<>();
+    private final Map<String, Set<Playlist>> followedByOwner = new HashMap<>();
+
+    /**
+     * Records whether the player of a user has a source.
+     * @param user the user whose player changed
+     * @param hasSource true if a source was loaded, false if it was cleared
+     */
+    public void loadChanged(final User user, final boolean hasSource) {
+        if (hasSource) {
+            loaded.add(user);
+        } else {
+            loaded.remove(user);
+        }
+    }
+
+    /**
+     * Records the page a user is on.
+     * @param user the user who changed the page
+     */
+    public void pageChanged(final User user) {
+        if (user.isPageSetArtist()) {
+            onArtistPage.add(user);
+        } else {
+            onArtistPage.remove(user);
+        }
+        if (user.isPageSetHost()) {
+            onHostPage.add(user);
+        } else {
+            onHostPage.remove(user);
+        }
+    }
+
+    /**
+     * @return a copy of the users whose player has a source
+     */
+    public List<User> getLoadedUsers() {
+        return new ArrayList<>(loaded);
+    }
+
+    /**
+     * @return true if some user is on the page of an artist
+     */
+    public boolean anyOnArtistPage() {
+        return !onArtistPage.isEmpty();
+    }
+
+    /**
+     * @return true if some user is on the page of a host
+     */
+    public boolean anyOnHostPage() {
+        return !onHostPage.isEmpty();
+    }
+
+    /**
+     * Records a like.
+     * @param user the user who liked the song
+     * @param song the liked song
+     */
+    public synchronized void liked(final User user, final Song song) {
+        likers.computeIfAbsent(song, k -> new LinkedHashSet<>()).add(user);
+        likedByArtist.computeIfAbsent(song.getArtist(), k -> new LinkedHashSet<>()).add(song);
+    }
+
+    /**
+     * Records that a like was taken back.
+     * @param user the user who unliked the song
+     * @param song the unliked song
+     */
+    public synchronized void unliked(final User user, final Song song) {
+        Set<User> users = likers.get(song);
+        if (users != null && users.remove(user) && users.isEmpty()) {
+            forgetSong(song);
+        }
+    }
+
+    /**
+     * @param song a song
+     * @return a copy of the users that liked the song
+     */
+    public synchronized List<User> getLikers(final Song song) {
+        return new ArrayList<>(likers.getOrDefault(song, Set.of()));
+    }
+
+    /**
+     * @param artist the exact name of the artist
+     * @return a copy of the songs of the artist that somebody liked
+     */
+    public synchronized List<Song> getLikedSongsByArtist(final String artist) {
+        return new ArrayList<>(likedByArtist.getOrDefault(artist, Set.of()));
+    }
+
+    /**
+     * Forgets all the likes of a song, for example because the song leaves the library.
+     * @param song the song to forget
+     */
+    public synchronized void forgetSong(final Song song) {
+        likers.remove(song);
+        Set<Song> songs = likedByArtist.get(song.getArtist());
+        if (songs != null && songs.remove(song) && songs.isEmpty()) {
+            likedByArtist.remove(song.getArtist());
+        }
+    }
+
+    /**
+     * Records a follow.
+     * @param user the user who followed the playlist
+     * @param playlist the followed playlist
+     */
+    public synchronized void followed(final User user, final Playlist playlist) {
+        followers.computeIfAbsent(playlist, k -> new LinkedHashSet<>()).add(user);
+        followedByOwner.computeIfAbsent(playlist.getOwner(), k -> new LinkedHashSet<>())
+                .add(playlist);
+    }
+
+    /**
+     * Records that a follow was taken back.
+     * @param user the user who unfollowed the playlist
+     * @param playlist the unfollowed playlist
+     */
+    public synchronized void unfollowed(final User user, final Playlist playlist) {
+        Set<User> users = followers.get(playlist);
+        if (users != null && users.remove(user) && users.isEmpty()) {
+            forgetPlaylist(playlist);
+        }
+    }
+
+    /**
+     * @param playlist a playlist
+     * @return a copy of the users that follow the playlist
+     */
+    public synchronized List<User> getFollowers(final Playlist playlist) {
+        return new ArrayList<>(followers.getOrDefault(playlist, Set.of()));
+    }
+
+    /**
+     * @param owner the exact name of the owner
+     * @return a copy of the playlists of the owner that somebody follows
+     */
+    public synchronized List<Playlist> getFollowedPlaylistsByOwner(final String owner) {
+        return new ArrayList<>(followedByOwner.getOrDefault(owner, Set.of()));
+    }
+
+    /**
+     * Forgets all the follows of a playlist, for example because it leaves the library.
+     * @param playlist the playlist to forget
+     */
+    public synchronized void forgetPlaylist(final Playlist playlist) {
+        followers.remove(playlist);
+        Set<Playlist> playlists = followedByOwner.get(playlist.getOwner());
+        if (playlists != null && playlists.remove(playlist) && playlists.isEmpty()) {
+            followedByOwner.remove(playlist.getOwner());
+        }
+    }
+
+    /**
+     * Forgets everything a user references.
+     * @param user the user that leaves the system
+     */
+    public synchronized void removeUser(final User user) {
+        loaded.remove(user);
+        onArtistPage.remove(user);
+        onHostPage.remove(user);
+        for (Song song : user.getLikedSongs()) {
+            unliked(user, song);
+        }
+        for (Playlist playlist : user.getFollowedPlaylists()) {
+            unfollowed(user, playlist);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package app.catalog;
+
+import app.audio.Files.Song;
+import fileio.input.SongInput;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The songs of a library stored outside the heap, in memory-mapped column files, for
+ * libraries too big to keep every song as a set of Java strings. The songs handed out are
+ * views (see Song(SongColumns, int)) that hold only their row and read their details from
+ * the files when asked, so the heap holds one small object per song and the operating
+ * system pages the text in and out as needed.
+ * <p>
+ * The duration and the release year are int columns of four bytes per row, with
+ * Integer.MIN_VALUE for null. Every text column (name, album, lyrics, genre, artist and the
+ * tags) is an index of twelve bytes per row, the offset and the length of the text (-1 for
+ * null), over a heap of UTF-8 bytes. The tags of a song are stored as one text, every tag
+ * followed by a zero char. The lyrics are also stored in lower case, the form the lyrics
+ * filter compares, so a search does not fold them for every song. A heap is mapped in
+ * chunks of CHUNK_SIZE bytes, and the writer never lets a text cross the end of a chunk.
+ * An index is mapped whole, which limits the columns to MAX_SONGS songs. The meta file,
+ * with the number of songs and the library the columns were built from, is written last,
+ * so columns that were not written completely are never used.
+ */
+public final class SongColumns {
+    private static final int MAGIC = 0x47575343;
+    private static final int VERSION = 3;
+    private static final String META = "songs.meta";
+    private static final String DURATION = "duration.col";
+    private static final String RELEASE_YEAR = "releaseYear.col";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String HEAP_SUFFIX = ".heap";
+    private static final String[] TEXTS = {"name", "album", "lyrics", "genre", "artist",
+        "tags", "lyricsLowerCase"};
+    private static final int NAME = 0;
+    private static final int ALBUM = 1;
+    private static final int LYRICS = 2;
+    private static final int GENRE = 3;
+    private static final int ARTIST = 4;
+    private static final int TAGS = 5;
+    private static final int LYRICS_LOWER_CASE = 6;
+    private static final int INDEX_WIDTH = Long.BYTES + Integer.BYTES;
+    private static final long CHUNK_SIZE = 1L << 30;
+    private static final int NULL = Integer.MIN_VALUE;
+    private static final char TAG_END = '\u0000';
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SONGS = Integer.MAX_VALUE / INDEX_WIDTH;
+
+    private final int size;
+    private final ByteBuffer durations;
+    private final ByteBuffer releaseYears;
+    private final ByteBuffer[] indexes = new ByteBuffer[TEXTS.length];
+    private final ByteBuffer[][] heaps = new ByteBuffer[TEXTS.length][];
+
+    private SongColumns(final Path directory, final int size) throws IOException {
+        this.size = size;
+        this.durations = map(directory.resolve(DURATION), 0, (long) size * Integer.BYTES);
+        this.releaseYears = map(directory.resolve(RELEASE_YEAR), 0,
+                (long) size * Integer.BYTES);
+        for (int text = 0; text < TEXTS.length; text++) {
+            indexes[text] = map(directory.resolve(TEXTS[text] + INDEX_SUFFIX), 0,
+                    (long) size * INDEX_WIDTH);
+            Path heap = directory.resolve(TEXTS[text] + HEAP_SUFFIX);
+            long length = Files.size(heap);
+            heaps[text] = new ByteBuffer[(int) ((length + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            for (int chunk = 0; chunk < heaps[text].length; chunk++) {
+                long start = chunk * CHUNK_SIZE;
+                heaps[text][chunk] = map(heap, start, Math.min(CHUNK_SIZE, length - start));
+            }
+        }
+    }
+
+    /**
+     * Maps the columns written for a library, if they are complete and were written for
+     * that very version of the library.
+     * @param directory the directory of the columns
+     * @param library the canonical path of the library file
+     * @param lastModified the modification time of the library file
+     * @param length the length of the library file
+     * @return the columns, or null if they have to be written again
+     * @throws IOException if the columns cannot be read
+     */
+    public static SongColumns open(final Path directory, final String library,
+                                   final long lastModified, final long length)
+            throws IOException {
+        try (DataInputStream meta = new DataInputStream(
+                Files.newInputStream(directory.resolve(META)))) {
+            if (meta.readInt() != MAGIC || meta.readInt() != VERSION
+                    || !meta.readUTF().equals(library) || meta.readLong() != lastModified
+                    || meta.readLong() != length) {
+                return null;
+            }
+            return new SongColumns(directory, meta.readInt());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts writing the columns of a library, replacing the columns already in the
+     * directory. The songs are added one by one, so the library never has to be in memory
+     * all at once.
+     * @param directory the directory of the columns, created if needed
+     * @return the writer
+     * @throws IOException if the columns cannot be written
+     */
+    public static Writer write(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(META));
+        return new Writer(directory);
+    }
+
+    private static ByteBuffer map(final Path path, final long position, final long length)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+    }
+
+    /**
+     * @return the number of songs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a view of every song, in library order
+     */
+    public List<Song> songs() {
+        List<Song> songs = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            songs.add(new Song(this, row));
+        }
+        return songs;
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the name of the song
+     */
+    public String getName(final int row) {
+        return text(NAME, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the duration of the song
+     */
+    public Integer getDuration(final int row) {
+        return number(durations, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the album of the song
+     */
+    public String getAlbum(final int row) {
+        return text(ALBUM, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return a new list with the tags of the song
+     */
+    public ArrayList<String> getTags(final int row) {
+        String joined = text(TAGS, row);
+        if (joined == null) {
+            return null;
+        }
+        ArrayList<String> tags = new ArrayList<>();
+        int start = 0;
+        for (int end = joined.indexOf(TAG_END); end >= 0;
+             end = joined.indexOf(TAG_END, start)) {
+            tags.add(joined.substring(start, end));
+            start = end + 1;
+        }
+        return tags;
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the lyrics of the song
+     */
+    public String getLyrics(final int row) {
+        return text(LYRICS, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the lyrics of the song in lower case
+     */
+    public String getLyricsLowerCase(final int row) {
+        return text(LYRICS_LOWER_CASE, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the genre of the song
+     */
+    public String getGenre(final int row) {
+        return text(GENRE, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the release year of the song
+     */
+    public Integer getReleaseYear(final int row) {
+        return number(releaseYears, row);
+    }
+
+    /**
+     * @param row the row of a song
+     * @return the artist of the song
+     */
+    public String getArtist(final int row) {
+        return text(ARTIST, row);
+    }
+
+    private static Integer number(final ByteBuffer column, final int row) {
+        int value = column.getInt(row * Integer.BYTES);
+        return value == NULL ? null : value;
+    }
+
+    private String text(final int text, final int row) {
+        int at = row * INDEX_WIDTH;
+        long offset = indexes[text].getLong(at);
+        int length = indexes[text].getInt(at + Long.BYTES);
+        if (length < 0) {
+            return null;
+        }
+        if (length == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        heaps[text][(int) (offset / CHUNK_SIZE)].get((int) (offset % CHUNK_SIZE), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the columns of a library, one song at a time. Closing the writer without
+     * calling finish leaves columns that open does not accept.
+     */
+    public static final class Writer implements Closeable {
+        private final Path directory;
+        private final DataOutputStream durationColumn;
+        private final DataOutputStream releaseYearColumn;
+        private final DataOutputStream[] indexColumns = new DataOutputStream[TEXTS.length];
+        private final DataOutputStream[] heapColumns = new DataOutputStream[TEXTS.length];
+        private final long[] heapSizes = new long[TEXTS.length];
+        private int size;
+
+        private Writer(final Path directory) throws IOException {
+            this.directory = directory;
+            this.durationColumn = output(DURATION);
+            this.releaseYearColumn = output(RELEASE_YEAR);
+            for (int text = 0; text < TEXTS.length; text++) {
+                indexColumns[text] = output(TEXTS[text] + INDEX_SUFFIX);
+                heapColumns[text] = output(TEXTS[text] + HEAP_SUFFIX);
+            }
+        }
+
+        private DataOutputStream output(final String name) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    directory.resolve(name)), BUFFER_SIZE));
+        }
+
+        /**
+         * Adds a song after the ones already written.
+         * @param song the song
+         * @throws IOException if the columns cannot be written
+         */
+        public void add(final SongInput song) throws IOException {
+            if (size == MAX_SONGS) {
+                throw new IOException("More than " + MAX_SONGS + " songs");
+            }
+            durationColumn.writeInt(song.getDuration() == null ? NULL : song.getDuration());
+            releaseYearColumn.writeInt(song.getReleaseYear());
+            writeText(NAME, song.getName());
+            writeText(ALBUM, song.getAlbum());
+            writeText(LYRICS, song.getLyrics());
+            writeText(GENRE, song.getGenre());
+            writeText(ARTIST, song.getArtist());
+            writeText(LYRICS_LOWER_CASE, song.getLyrics() == null ? null
+                    : song.getLyrics().toLowerCase());
+            String tags = null;
+            if (song.getTags() != null) {
+                StringBuilder joined = new StringBuilder();
+                for (String tag : song.getTags()) {
+                    joined.append(tag).append(TAG_END);
+                }
+                tags = joined.toString();
+            }
+            writeText(TAGS, tags);
+            size++;
+        }
+
+        private void writeText(final int text, final String value) throws IOException {
+            if (value == null) {
+                indexColumns[text].writeLong(heapSizes[text]);
+                indexColumns[text].writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            long room = CHUNK_SIZE - heapSizes[text] % CHUNK_SIZE;
+            if (bytes.length > room) {
+                for (long i = 0; i < room; i++) {
+                    heapColumns[text].write(0);
+                }
+                heapSizes[text] += room;
+            }
+            indexColumns[text].writeLong(heapSizes[text]);
+            indexColumns[text].writeInt(bytes.length);
+            heapColumns[text].write(bytes);
+            heapSizes[text] += bytes.length;
+        }
+
+        /**
+         * Completes the columns, marking them as built from the given library, and maps
+         * them.
+         * @param library the canonical path of the library file
+         * @param lastModified the modification time of the library file
+         * @param length the length of the library file
+         * @return the columns
+         * @throws IOException if the columns cannot be written
+         */
+        public SongColumns finish(final String library, final long lastModified,
+                                  final long length) throws IOException {
+            close();
+            force(DURATION);
+            force(RELEASE_YEAR);
+            for (String text : TEXTS) {
+                force(text + INDEX_SUFFIX);
+                force(text + HEAP_SUFFIX);
+            }
+            Path meta = directory.resolve(META + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(meta))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(library);
+                out.writeLong(lastModified);
+                out.writeLong(length);
+                out.writeInt(size);
+            }
+            Files.move(meta, directory.resolve(META), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            return new SongColumns(directory, size);
+        }
+
+        private void force(final String name) throws IOException {
+            try (FileChannel channel = FileChannel.open(directory.resolve(name),
+                    StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            durationColumn.close();
+            releaseYearColumn.close();
+            for (int text = 0; text < TEXTS.length; text++) {
+                indexColumns[text].close();
+                heapColumns[text].close();
+            }
+        }
+    }
+}
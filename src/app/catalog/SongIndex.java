@@ -0,0 +1,308 @@
+package app.catalog;
+
+import app.audio.Files.Song;
+import app.searchBar.Filters;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * Holds the songs of the library by ordinal, together with the inverted indexes used to
+ * answer song searches. Every registered song gets the next ordinal, so ordinal order is
+ * library order. The posting lists keyed by tag, and by the codes the index gives to the
+ * genres, artists and albums (see StringDictionary), are sorted arrays of ordinals, and a
+ * search intersects the ones of its filters.
+ * Lyrics are indexed by the trigrams of their lower-cased text: a song can only contain a
+ * lyrics query if it has every trigram of the query, so the trigram postings give the
+ * candidates that are then checked with a plain substring search.
+ */
+public final class SongIndex {
+    private static final int TRIGRAM = 3;
+    private static final int CHAR_BITS = 16;
+    private static final PostingList EMPTY = new PostingList();
+
+    private final boolean indexLyrics;
+    private final List<Song> byOrdinal = new ArrayList<>();
+    private int size = 0;
+
+    private final PrefixIndex<Song> names = new PrefixIndex<>();
+    private final Map<String, PostingList> tags = new HashMap<>();
+    private final Map<Integer, PostingList> genres = new HashMap<>();
+    private final Map<Integer, PostingList> artists = new HashMap<>();
+    private final Map<Integer, PostingList> albums = new HashMap<>();
+    private final Map<Long, PostingList> trigrams = new HashMap<>();
+    private final StringDictionary codes = new StringDictionary();
+
+    /**
+     * @param indexLyrics false to skip the lyrics trigram index, which is the largest one;
+     *                    lyrics searches then check every candidate song
+     */
+    public SongIndex(final boolean indexLyrics) {
+        this.indexLyrics = indexLyrics;
+    }
+
+    /**
+     * Registers a song, giving it the next ordinal.
+     * @param song the song to add
+     * @return false if the song was already registered
+     */
+    public boolean add(final Song song) {
+        if (contains(song)) {
+            return false;
+        }
+        int ordinal = byOrdinal.size();
+        song.setOrdinal(ordinal);
+        byOrdinal.add(song);
+        size++;
+
+        names.add(song, ordinal);
+        for (String tag : tagKeys(song)) {
+            tags.computeIfAbsent(tag, k -> new PostingList()).add(ordinal);
+        }
+        post(genres, codes.code(song.getGenre()), ordinal);
+        post(artists, codes.code(song.getArtist()), ordinal);
+        post(albums, codes.code(song.getAlbum()), ordinal);
+        if (indexLyrics) {
+            for (Long trigram : trigramsOf(song.getLyricsLowerCase())) {
+                trigrams.computeIfAbsent(trigram, k -> new PostingList()).add(ordinal);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters a song. Its ordinal is not given to any other song.
+     * @param song the song to remove
+     * @return false if the song was not registered
+     */
+    public boolean remove(final Song song) {
+        if (!contains(song)) {
+            return false;
+        }
+        int ordinal = song.getOrdinal();
+        byOrdinal.set(ordinal, null);
+        size--;
+
+        names.remove(song, ordinal);
+        for (String tag : tagKeys(song)) {
+            unpost(tags, tag, ordinal);
+        }
+        unpost(genres, codes.find(song.getGenre()), ordinal);
+        unpost(artists, codes.find(song.getArtist()), ordinal);
+        unpost(albums, codes.find(song.getAlbum()), ordinal);
+        if (indexLyrics) {
+            for (Long trigram : trigramsOf(song.getLyricsLowerCase())) {
+                PostingList list = trigrams.get(trigram);
+                if (list != null) {
+                    list.remove(ordinal);
+                    if (list.isEmpty()) {
+                        trigrams.remove(trigram);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param song the song to check
+     * @return true if this exact song is registered
+     */
+    public boolean contains(final Song song) {
+        int ordinal = song.getOrdinal();
+        return ordinal >= 0 && ordinal < byOrdinal.size() && byOrdinal.get(ordinal) == song;
+    }
+
+    /**
+     * @param prefix the start of the name, case is ignored
+     * @return a read only view over the songs whose name starts with the prefix, in library
+     * order, valid until songs are added or removed
+     */
+    public List<Song> startingWith(final String prefix) {
+        return names.startingWith(prefix);
+    }
+
+    /**
+     * Answers the name, tags, genre, artist and album filters of a song search by
+     * intersecting their posting lists. Lyrics of at least three characters narrow the
+     * candidates through the trigram index. The release year and lyrics filters still have
+     * to be checked on the returned songs.
+     * The lists are intersected in place while the songs are read, so a search that stops
+     * at its result limit only pays for the songs it looked at. The songs must be read
+     * before the index changes.
+     * @param filters the filters of the search
+     * @return the songs matching the indexed filters, in library order
+     */
+    public Iterable<Song> candidates(final Filters filters) {
+        List<SortedOrdinals> lists = new ArrayList<>();
+        if (filters.getName() != null) {
+            List<Song> named = names.startingWith(filters.getName());
+            lists.add(new SortedOrdinals() {
+                @Override
+                public int size() {
+                    return named.size();
+                }
+
+                @Override
+                public int get(final int index) {
+                    return named.get(index).getOrdinal();
+                }
+            });
+        }
+        if (filters.getTags() != null) {
+            for (String tag : filters.getTags()) {
+                lists.add(postings(tags, tag.toLowerCase()));
+            }
+        }
+        if (filters.getGenre() != null) {
+            lists.add(postings(genres, codes.find(filters.getGenre())));
+        }
+        if (filters.getArtist() != null) {
+            lists.add(postings(artists, codes.find(filters.getArtist())));
+        }
+        if (filters.getAlbum() != null) {
+            lists.add(postings(albums, codes.find(filters.getAlbum())));
+        }
+        if (indexLyrics && filters.getLyrics() != null) {
+            for (Long trigram : trigramsOf(filters.getLyrics().toLowerCase())) {
+                lists.add(postings(trigrams, trigram));
+            }
+        }
+        if (lists.isEmpty()) {
+            return songs();
+        }
+
+        return () -> new Iterator<>() {
+            private final PrimitiveIterator.OfInt ordinals = PostingList.intersection(lists);
+
+            @Override
+            public boolean hasNext() {
+                return ordinals.hasNext();
+            }
+
+            @Override
+            public Song next() {
+                return byOrdinal.get(ordinals.nextInt());
+            }
+        };
+    }
+
+    /**
+     * @return a read only view over the registered songs, in library order
+     */
+    public Collection<Song> songs() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Song> iterator() {
+                return new LiveSongs();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Folds the case of a value the same way String.equalsIgnoreCase compares characters,
+     * so two values have the same key exactly when they are equal ignoring case.
+     * @param value the value to fold
+     * @return the key of the value, or null for a null value
+     */
+    public static String foldCase(final String value) {
+        if (value == null) {
+            return null;
+        }
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    private static Set<Long> trigramsOf(final String text) {
+        Set<Long> keys = new HashSet<>();
+        if (text == null) {
+            return keys;
+        }
+        for (int i = 0; i + TRIGRAM <= text.length(); i++) {
+            keys.add(((long) text.charAt(i) << (2 * CHAR_BITS))
+                    | ((long) text.charAt(i + 1) << CHAR_BITS)
+                    | text.charAt(i + 2));
+        }
+        return keys;
+    }
+
+    private static Set<String> tagKeys(final Song song) {
+        Set<String> keys = new HashSet<>();
+        if (song.getTags() != null) {
+            for (String tag : song.getTags()) {
+                keys.add(tag.toLowerCase());
+            }
+        }
+        return keys;
+    }
+
+    private static void post(final Map<Integer, PostingList> index, final int code,
+                             final int ordinal) {
+        if (code != StringDictionary.NONE) {
+            index.computeIfAbsent(code, k -> new PostingList()).add(ordinal);
+        }
+    }
+
+    private static <K> void unpost(final Map<K, PostingList> index, final K key,
+                                   final int ordinal) {
+        if (key == null) {
+            return;
+        }
+        PostingList list = index.get(key);
+        if (list != null) {
+            list.remove(ordinal);
+            if (list.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> PostingList postings(final Map<K, PostingList> index, final K key) {
+        PostingList list = index.get(key);
+        return list == null ? EMPTY : list;
+    }
+
+    private final class LiveSongs implements Iterator<Song> {
+        private int next = advance(0);
+
+        private int advance(final int from) {
+            int ordinal = from;
+            while (ordinal < byOrdinal.size() && byOrdinal.get(ordinal) == null) {
+                ordinal++;
+            }
+            return ordinal;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < byOrdinal.size();
+        }
+
+        @Override
+        public Song next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Song song = byOrdinal.get(next);
+            next = advance(next + 1);
+            return song;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package app.catalog;
+
+/**
+ * A sorted list of song ordinals that is read in place, such as a posting list or the
+ * songs of a name prefix, so that searches can intersect lists without copying them.
+ */
+public interface SortedOrdinals {
+    /**
+     * @return the number of ordinals in the list
+     */
+    int size();
+
+    /**
+     * @param index a position in the list
+     * @return the ordinal at that position
+     */
+    int get(int index);
+}
@@ -0,0 +1,48 @@
+package app.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives int codes to the genres, artists and albums of the songs of a SongIndex, so their
+ * posting lists are keyed by an int instead of a case-folded copy of the text. Values equal
+ * ignoring case get the same code.
+ * A dictionary belongs to one index and lives as long as its catalog: values are never
+ * removed, but a reset starts a new catalog with an empty dictionary. Like the index, it is
+ * guarded by the catalog locks.
+ */
+public final class StringDictionary {
+    /**
+     * The code of null, and the one find gives for values never seen; no value has it.
+     */
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Gives the code of a value, adding the value if it is new.
+     * @param value a value
+     * @return the code of the value, the same for values equal ignoring case, or NONE for
+     * null
+     */
+    public int code(final String value) {
+        if (value == null) {
+            return NONE;
+        }
+        return codes.computeIfAbsent(SongIndex.foldCase(value), key -> codes.size());
+    }
+
+    /**
+     * Gives the code of a value without adding it, for example the value of a filter.
+     * @param value a value
+     * @return the code of the value, or NONE if no value equal to it ignoring case was
+     * ever added
+     */
+    public int find(final String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(SongIndex.foldCase(value));
+        return code == null ? NONE : code;
+    }
+}
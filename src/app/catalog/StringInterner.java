@@ -0,0 +1,38 @@
+package app.catalog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the instances of texts that many songs have, so a value costs one string however
+ * many songs have it. Only values with few distinct texts belong here, the genres and the
+ * tags; the interner is cleared whenever the system is reset, so it never holds more than
+ * the texts of one library. It is safe to use from several threads.
+ */
+public final class StringInterner {
+    /**
+     * The genres and tags of the songs.
+     */
+    public static final StringInterner SONG_DETAILS = new StringInterner();
+
+    private final Map<String, String> instances = new ConcurrentHashMap<>();
+
+    /**
+     * @param value a value
+     * @return the shared instance equal to the value, or null for null
+     */
+    public String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = instances.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    /**
+     * Forgets every shared instance. The strings already handed out stay valid.
+     */
+    public void clear() {
+        instances.clear();
+    }
+}
@@ -9,14 +9,17 @@ import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public final class Player {
+    @Getter
     private Enums.RepeatMode repeatMode;
     private boolean shuffle;
     private boolean paused;
     @Getter
-    @Setter
     private PlayerSource source;
+    @Setter
+    private Consumer<Boolean> loadListener = hasSource -> { };
     @Getter
     @Setter
     private String type;
@@ -24,7 +27,10 @@ public final class Player {
     @Setter
     private boolean wasPaused;
 
+    @Getter
     private ArrayList<PodcastBookmark> bookmarks = new ArrayList<>();
+    @Getter
+    private int clock = 0;
     private static final int SKIP_NEXT = -90;
     private static final int SKIP_PREV = 90;
 
@@ -45,10 +51,18 @@ public final class Player {
 
         repeatMode = Enums.RepeatMode.NO_REPEAT;
         paused = true;
-        source = null;
+        changeSource(null);
         shuffle = false;
     }
 
+    private void changeSource(final PlayerSource newSource) {
+        boolean hadSource = source != null;
+        source = newSource;
+        if (hadSource != (source != null)) {
+            loadListener.accept(source != null);
+        }
+    }
+
     private void bookmarkPodcast() {
         if (source != null && source.getAudioFile() != null) {
             PodcastBookmark currentBookmark = new PodcastBookmark(source.getAudioCollection().
@@ -108,12 +122,32 @@ public final class Player {
         }
 
         this.type = sourceType;
-        this.source = createSource(type, entry, bookmarks);
+        changeSource(createSource(type, entry, bookmarks));
         this.repeatMode = Enums.RepeatMode.NO_REPEAT;
         this.shuffle = false;
         this.paused = true;
     }
 
+    /**
+     * Puts the player back in a saved state, for example one read from a checkpoint. The
+     * load listener is not told about the source; whoever restores the player also
+     * restores what the listener keeps.
+     * @param savedSource the source, or null if nothing was loaded
+     * @param savedRepeatMode the repeat mode
+     * @param savedShuffle true if the player was in shuffle mode
+     * @param savedPaused true if the player was paused
+     * @param savedClock the last moment the player was brought up to
+     */
+    public void restore(final PlayerSource savedSource, final Enums.RepeatMode savedRepeatMode,
+                        final boolean savedShuffle, final boolean savedPaused,
+                        final int savedClock) {
+        this.source = savedSource;
+        this.repeatMode = savedRepeatMode;
+        this.shuffle = savedShuffle;
+        this.paused = savedPaused;
+        this.clock = savedClock;
+    }
+
     /**
      * Used to change the player paused stat.
      */
@@ -172,6 +206,24 @@ public final class Player {
 
         return repeatMode;
     }
+    /**
+     * Brings the player up to the given moment. The player is only advanced when it is
+     * looked at, so a paused or empty player costs nothing while time passes.
+     * @param timestamp the moment we want to reach
+     * @param running false if the time since the last call must not be played,
+     *                for example because the owner was offline
+     */
+    public void advanceTo(final int timestamp, final boolean running) {
+        int elapsed = timestamp - clock;
+        if (elapsed <= 0) {
+            return;
+        }
+        clock = timestamp;
+        if (running && source != null && !paused) {
+            simulatePlayer(elapsed);
+        }
+    }
+
     /**
      * Simulate player.
      *
@@ -186,6 +238,7 @@ public final class Player {
                 if (paused) {
                     break;
                 }
+                elapsedTime = source.skipWholeTracks(elapsedTime, repeatMode, shuffle);
             }
             if (!paused) {
                 source.skip(-elapsedTime);
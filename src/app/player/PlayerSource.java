@@ -21,9 +21,16 @@ public final class PlayerSource {
     private AudioFile audioFile;
     @Getter
     private int index;
+    @Getter
     private int indexShuffled;
     private int remainedDuration;
+    @Getter
     private final List<Integer> indices = new ArrayList<>();
+    // startTimes[i] is the total duration of the tracks before position i, in natural
+    // or shuffled order; the last element is the duration of the whole collection.
+    private long[] startTimes;
+    private long[] shuffledStartTimes;
+    private int startTimesVersion;
 
     public PlayerSource(final Enums.PlayerSourceType type, final AudioFile audioFile) {
         this.type = type;
@@ -49,6 +56,28 @@ public final class PlayerSource {
         this.audioFile = audioCollection.getTrackByIndex(index);
     }
 
+    /**
+     * Creates a source in a saved state, for example one read from a checkpoint.
+     * @param type the type of the source
+     * @param audioCollection the played collection, or null for a single song
+     * @param audioFile the current track
+     * @param index the position of the current track in the collection
+     * @param indexShuffled the position of the current track in the shuffle order
+     * @param remainedDuration how much of the current track is left
+     * @param indices the shuffle order
+     */
+    public PlayerSource(final Enums.PlayerSourceType type, final AudioCollection audioCollection,
+                        final AudioFile audioFile, final int index, final int indexShuffled,
+                        final int remainedDuration, final List<Integer> indices) {
+        this.type = type;
+        this.audioCollection = audioCollection;
+        this.audioFile = audioFile;
+        this.index = index;
+        this.indexShuffled = indexShuffled;
+        this.remainedDuration = remainedDuration;
+        this.indices.addAll(indices);
+    }
+
     public int getDuration() {
         return remainedDuration;
     }
@@ -112,6 +141,134 @@ public final class PlayerSource {
         return isPaused;
     }
 
+    /**
+     * Plays as many whole tracks as fit in the elapsed time in one step, instead of moving
+     * to the next track once per track. It only moves over tracks after which next would
+     * behave the same way again, so the track, the remaining duration and the repeat mode
+     * end up exactly as if next had been called for each of them; the last track of a
+     * collection that does not repeat is left for next to handle.
+     * The current track must have just started, which is the case right after next.
+     * @param elapsed the time left to play
+     * @param repeatMode the current case of repeating
+     * @param shuffle indicate whether the source is in shuffle mode
+     * @return the time left to play after the skipped tracks, less than the duration of
+     * the track we end up on, unless nothing could be skipped
+     */
+    public int skipWholeTracks(final int elapsed, final Enums.RepeatMode repeatMode,
+                               final boolean shuffle) {
+        if (repeatMode == Enums.RepeatMode.REPEAT_ONCE
+                || remainedDuration != audioFile.getDuration()) {
+            return elapsed;
+        }
+        boolean repeatCurrent = repeatMode == Enums.RepeatMode.REPEAT_CURRENT_SONG
+                || repeatMode == Enums.RepeatMode.REPEAT_INFINITE
+                || (type == Enums.PlayerSourceType.LIBRARY
+                && repeatMode != Enums.RepeatMode.NO_REPEAT);
+        if (repeatCurrent) {
+            return remainedDuration > 0 ? elapsed % remainedDuration : elapsed;
+        }
+        if (type == Enums.PlayerSourceType.LIBRARY) {
+            return elapsed;
+        }
+
+        long[] starts = startTimes(shuffle);
+        int position = shuffle ? indexShuffled : index;
+        if (starts == null || position >= starts.length - 1
+                || trackAt(position, shuffle) != audioFile) {
+            return elapsed;
+        }
+        int tracks = starts.length - 1;
+        long total = starts[tracks];
+        long left = elapsed;
+        int last;
+        if (repeatMode == Enums.RepeatMode.REPEAT_ALL) {
+            if (total == 0) {
+                return elapsed;
+            }
+            left %= total;
+            long target = starts[position] + left;
+            if (target < total) {
+                last = lastStartingBy(starts, target);
+                left = target - starts[last];
+            } else {
+                last = lastStartingBy(starts, target - total);
+                left = target - total - starts[last];
+            }
+            last %= tracks;
+        } else {
+            long target = starts[position] + left;
+            last = Math.min(lastStartingBy(starts, target), tracks - 1);
+            left = target - starts[last];
+        }
+
+        if (shuffle) {
+            indexShuffled = last;
+            index = indices.get(last);
+        } else {
+            index = last;
+        }
+        updateAudioFile();
+        remainedDuration = audioFile.getDuration();
+        return (int) left;
+    }
+
+    /**
+     * @return the last position whose track starts at or before the given time
+     */
+    private static int lastStartingBy(final long[] starts, final long time) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= time) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private AudioFile trackAt(final int position, final boolean shuffle) {
+        return audioCollection.getTrackByIndex(shuffle ? indices.get(position) : position);
+    }
+
+    /**
+     * The start times are computed once and kept until the tracks of the collection or the
+     * shuffle order change.
+     * @return the start times in the given order, or null if the shuffle order refers to
+     * tracks that are no longer in the collection
+     */
+    private long[] startTimes(final boolean shuffle) {
+        if (startTimesVersion != audioCollection.getModifications()) {
+            startTimes = null;
+            shuffledStartTimes = null;
+            startTimesVersion = audioCollection.getModifications();
+        }
+        int tracks = audioCollection.getNumberOfTracks();
+        if (!shuffle) {
+            if (startTimes == null) {
+                startTimes = new long[tracks + 1];
+                for (int i = 0; i < tracks; i++) {
+                    startTimes[i + 1] = startTimes[i] + trackAt(i, false).getDuration();
+                }
+            }
+            return startTimes;
+        }
+        if (shuffledStartTimes == null) {
+            for (int track : indices) {
+                if (track >= tracks) {
+                    return null;
+                }
+            }
+            shuffledStartTimes = new long[indices.size() + 1];
+            for (int i = 0; i < indices.size(); i++) {
+                shuffledStartTimes[i + 1] = shuffledStartTimes[i] + trackAt(i, true).getDuration();
+            }
+        }
+        return shuffledStartTimes;
+    }
+
     /**
      * Make an update for the source.
      * @param shuffle used for the specific checks of this function.
@@ -151,6 +308,7 @@ public final class PlayerSource {
             indices.add(i);
         }
         Collections.shuffle(indices, random);
+        shuffledStartTimes = null;
     }
     /**
      * Updates indexes after the shuffle operation.
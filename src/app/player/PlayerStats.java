@@ -1,10 +1,14 @@
 package app.player;
 
 import app.utils.Enums;
+import app.utils.JsonWritable;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.Getter;
 
+import java.io.IOException;
+
 @Getter
-public final class PlayerStats {
+public final class PlayerStats implements JsonWritable {
     private final String name;
     private final int remainedTime;
     private String repeat;
@@ -38,4 +42,15 @@ public final class PlayerStats {
         }
         this.shuffle = shuffle;
     }
+
+    @Override
+    public void write(final JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeNumberField("remainedTime", remainedTime);
+        generator.writeStringField("repeat", repeat);
+        generator.writeBooleanField("shuffle", shuffle);
+        generator.writeBooleanField("paused", paused);
+        generator.writeEndObject();
+    }
 }
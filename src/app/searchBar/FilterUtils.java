@@ -10,145 +10,96 @@ public final class FilterUtils {
 
     }
     /**
-     * Filters a list of LibraryEntry objects by name and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param name    The name to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided name.
+     * Goes once through the entries and keeps those accepted by every criteria, stopping as
+     * soon as enough of them were found. The criteria are checked in the given order, so the
+     * cheap and selective ones should come first.
+     * @param entries The LibraryEntry objects to be filtered, in library order.
+     * @param criteria The criteria every kept entry has to match.
+     * @param limit The maximum number of entries we want.
+     * @return A list with the first entries that match all the criteria.
      */
-
-    public static List<LibraryEntry> filterByName(final List<LibraryEntry> entries,
-                                                  final String name) {
-        List<LibraryEntry> result = new ArrayList<>();
+    public static List<LibraryEntry> firstMatching(final Iterable<? extends LibraryEntry> entries,
+                                                   final List<FilterCriteria> criteria,
+                                                   final int limit) {
+        List<LibraryEntry> result = new ArrayList<>(limit);
+        if (limit <= 0) {
+            return result;
+        }
         for (LibraryEntry entry : entries) {
-            if (entry.matchesName(name)) {
+            if (matchesAll(entry, criteria)) {
                 result.add(entry);
+                if (result.size() == limit) {
+                    break;
+                }
             }
         }
         return result;
     }
-    /**
-     * Filters a list of LibraryEntry objects by description and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param description    The description to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided description.
-     */
-    public static List<LibraryEntry> filterByDescription(final List<LibraryEntry> entries,
-                                                         final String description) {
-        List<LibraryEntry> result = new ArrayList<>();
-        for (LibraryEntry entry : entries) {
-            if (entry.matchesDescription(description)) {
-                result.add(entry);
+
+    private static boolean matchesAll(final LibraryEntry entry,
+                                      final List<FilterCriteria> criteria) {
+        for (FilterCriteria criterion : criteria) {
+            if (!criterion.matches(entry)) {
+                return false;
             }
         }
-        return result;
+        return true;
     }
     /**
-     * Filters a list of LibraryEntry objects by album's name and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param album    The album to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided album.
+     * Criteria matching the LibraryEntry objects by description.
+     * @param description The description to match against the LibraryEntry objects.
+     * @return A criteria accepting the entries that match the provided description.
      */
-    public static List<LibraryEntry> filterByAlbum(final List<LibraryEntry> entries,
-                                                   final String album) {
-        return filter(entries, entry -> entry.matchesAlbum(album));
+    public static FilterCriteria byDescription(final String description) {
+        return entry -> entry.matchesDescription(description);
     }
     /**
-     * Filters a list of LibraryEntry objects by tags and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param tags    The tags to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided tags.
+     * Criteria matching the LibraryEntry objects by lyrics.
+     * @param lyrics The lyrics to match against the LibraryEntry objects.
+     * @return A criteria accepting the entries that match the provided lyrics.
      */
-    public static List<LibraryEntry> filterByTags(final List<LibraryEntry> entries,
-                                                  final ArrayList<String> tags) {
-        return filter(entries, entry -> entry.matchesTags(tags));
+    public static FilterCriteria byLyrics(final String lyrics) {
+        return entry -> entry.matchesLyrics(lyrics);
     }
     /**
-     * Filters a list of LibraryEntry objects by lyrics and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param lyrics    The lyrics to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided lyrics.
+     * Criteria matching the LibraryEntry objects by release year.
+     * @param releaseYear The release year to match against the LibraryEntry objects.
+     * @return A criteria accepting the entries that match the provided release year.
      */
-    public static List<LibraryEntry> filterByLyrics(final List<LibraryEntry> entries,
-                                                    final String lyrics) {
-        return filter(entries, entry -> entry.matchesLyrics(lyrics));
+    public static FilterCriteria byReleaseYear(final String releaseYear) {
+        return entry -> entry.matchesReleaseYear(releaseYear);
     }
     /**
-     * Filters a list of LibraryEntry objects by genre and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param genre   The genre to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided genre.
+     * Criteria matching the LibraryEntry objects by owner.
+     * @param user The owner to match against the LibraryEntry objects.
+     * @return A criteria accepting the entries that match the provided owner's name.
      */
-    public static List<LibraryEntry> filterByGenre(final List<LibraryEntry> entries,
-                                                   final String genre) {
-        return filter(entries, entry -> entry.matchesGenre(genre));
+    public static FilterCriteria byOwner(final String user) {
+        return entry -> entry.matchesOwner(user);
     }
     /**
-     * Filters a list of LibraryEntry objects by artist and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param artist    The artist to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided artist.
+     * Criteria matching the LibraryEntry objects visible to a user.
+     * @param user The name to match against the LibraryEntry objects.
+     * @return A criteria accepting the entries visible to the provided user.
      */
-    public static List<LibraryEntry> filterByArtist(final List<LibraryEntry> entries,
-                                                    final String artist) {
-        return filter(entries, entry -> entry.matchesArtist(artist));
+    public static FilterCriteria byPlaylistVisibility(final String user) {
+        return entry -> entry.isVisibleToUser(user);
     }
     /**
-     * Filters a list of LibraryEntry objects by release year and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param releaseYear    The name to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided release year.
+     * Criteria matching the LibraryEntry objects by followers.
+     * @param followers The followers to match against the LibraryEntry objects.
+     * @return A criteria accepting the entries that match the provided followers.
      */
-
-    public static List<LibraryEntry> filterByReleaseYear(final List<LibraryEntry> entries,
-                                                         final String releaseYear) {
-        return filter(entries, entry -> entry.matchesReleaseYear(releaseYear));
-    }
-    /**
-     * Filters a list of LibraryEntry objects by owner and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param user    The owner to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided owner's name.
-     */
-
-    public static List<LibraryEntry> filterByOwner(final List<LibraryEntry> entries,
-                                                   final String user) {
-        return filter(entries, entry -> entry.matchesOwner(user));
-    }
-    /**
-     * Filters a list of LibraryEntry objects by user and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param user    The name to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided user.
-     */
-
-    public static List<LibraryEntry> filterByPlaylistVisibility(final List<LibraryEntry> entries,
-                                                                final String user) {
-        return filter(entries, entry -> entry.isVisibleToUser(user));
-    }
-    /**
-     * Filters a list of LibraryEntry objects by followers and returns it.
-     * @param entries The list of LibraryEntry objects to be filtered.
-     * @param followers   The followers to match against the LibraryEntry objects.
-     * @return A list containing LibraryEntry objects that match the provided followers.
-     */
-    public static List<LibraryEntry> filterByFollowers(final List<LibraryEntry> entries,
-                                                       final String followers) {
-        return filter(entries, entry -> entry.matchesFollowers(followers));
-    }
-
-    private static List<LibraryEntry> filter(final List<LibraryEntry> entries,
-                                             final FilterCriteria criteria) {
-        List<LibraryEntry> result = new ArrayList<>();
-        for (LibraryEntry entry : entries) {
-            if (criteria.matches(entry)) {
-                result.add(entry);
-            }
-        }
-        return result;
+    public static FilterCriteria byFollowers(final String followers) {
+        return entry -> entry.matchesFollowers(followers);
     }
 
     @FunctionalInterface
-    private interface FilterCriteria {
+    public interface FilterCriteria {
+        /**
+         * @param entry the entry we are checking
+         * @return true if the entry is accepted by this criteria
+         */
         boolean matches(LibraryEntry entry);
     }
 }
@@ -1,27 +1,26 @@
 package app.searchBar;
 
-
 import app.Admin;
 import app.audio.LibraryEntry;
+import app.searchBar.FilterUtils.FilterCriteria;
+import app.utils.Enums;
 import lombok.Getter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 // Filters
-import static app.searchBar.FilterUtils.filterByAlbum;
-import static app.searchBar.FilterUtils.filterByArtist;
-import static app.searchBar.FilterUtils.filterByDescription;
-import static app.searchBar.FilterUtils.filterByGenre;
-import static app.searchBar.FilterUtils.filterByLyrics;
-import static app.searchBar.FilterUtils.filterByName;
-import static app.searchBar.FilterUtils.filterByOwner;
-import static app.searchBar.FilterUtils.filterByPlaylistVisibility;
-import static app.searchBar.FilterUtils.filterByReleaseYear;
-import static app.searchBar.FilterUtils.filterByTags;
-import static app.searchBar.FilterUtils.filterByFollowers;
+import static app.searchBar.FilterUtils.byDescription;
+import static app.searchBar.FilterUtils.byLyrics;
+import static app.searchBar.FilterUtils.byOwner;
+import static app.searchBar.FilterUtils.byPlaylistVisibility;
+import static app.searchBar.FilterUtils.byReleaseYear;
+import static app.searchBar.FilterUtils.byFollowers;
+import static app.searchBar.FilterUtils.firstMatching;
 
 public final class SearchBar {
+    @Getter
     private List<LibraryEntry> results;
     private final String user;
     private static final Integer MAX_RESULTS = 5;
@@ -36,6 +35,19 @@ public final class SearchBar {
         this.user = user;
     }
 
+    /**
+     * Puts the search bar back in a saved state, for example one read from a checkpoint.
+     * @param savedResults the results of the last search that were not selected yet
+     * @param savedSearchType the type of the last search
+     * @param savedSelection the last selected entry
+     */
+    public void restore(final List<LibraryEntry> savedResults, final String savedSearchType,
+                        final LibraryEntry savedSelection) {
+        this.results = new ArrayList<>(savedResults);
+        this.lastSearchType = savedSearchType;
+        this.lastSelected = savedSelection;
+    }
+
     /**
      * Used before starting a new search.
      */
@@ -45,114 +57,97 @@ public final class SearchBar {
     }
 
     /**
-     * Used to perform a search depending on what we are looking for
+     * Used to perform a search depending on what we are looking for. For songs, the name,
+     * tags, genre, artist and album filters are answered by the song indexes. The other
+     * filters are fused into one pass over the entries, which stops once MAX_RESULTS of them
+     * matched.
      * @param filters used to search something based on certain criteria.
      * @param type is the type of the entity we are searching
      * @return the results of the search in a list.
      */
     public List<LibraryEntry> search(final Filters filters, final String type) {
-        List<LibraryEntry> entries;
+        Iterable<? extends LibraryEntry> entries;
+        List<FilterCriteria> criteria = new ArrayList<>();
 
         switch (type) {
             case "song":
-                entries = new ArrayList<>(Admin.getInstance().getSongs());
-
-                if (filters.getName() != null) {
-                    entries = filterByName(entries, filters.getName());
-                }
-
-                if (filters.getAlbum() != null) {
-                    entries = filterByAlbum(entries, filters.getAlbum());
-                }
-
-                if (filters.getTags() != null) {
-                    entries = filterByTags(entries, filters.getTags());
-                }
-
-                if (filters.getLyrics() != null) {
-                    entries = filterByLyrics(entries, filters.getLyrics());
-                }
-
-                if (filters.getGenre() != null) {
-                    entries = filterByGenre(entries, filters.getGenre());
-                }
+                entries = Admin.getInstance().getSongCandidates(filters);
 
                 if (filters.getReleaseYear() != null) {
-                    entries = filterByReleaseYear(entries, filters.getReleaseYear());
+                    criteria.add(byReleaseYear(filters.getReleaseYear()));
                 }
 
-                if (filters.getArtist() != null) {
-                    entries = filterByArtist(entries, filters.getArtist());
+                if (filters.getLyrics() != null) {
+                    criteria.add(byLyrics(filters.getLyrics()));
                 }
 
                 break;
             case "playlist":
-                entries = new ArrayList<>(Admin.getInstance().getPlaylists());
-
-                entries = filterByPlaylistVisibility(entries, user);
-
-                if (filters.getName() != null) {
-                    entries = filterByName(entries, filters.getName());
-                }
+                entries = startingEntries(type, filters,
+                        () -> Admin.getInstance().getPlaylists());
 
                 if (filters.getOwner() != null) {
-                    entries = filterByOwner(entries, filters.getOwner());
+                    criteria.add(byOwner(filters.getOwner()));
                 }
 
+                criteria.add(byPlaylistVisibility(user));
+
                 if (filters.getFollowers() != null) {
-                    entries = filterByFollowers(entries, filters.getFollowers());
+                    criteria.add(byFollowers(filters.getFollowers()));
                 }
 
                 break;
             case "podcast":
-                entries = new ArrayList<>(Admin.getInstance().getPodcasts());
-
-                if (filters.getName() != null) {
-                    entries = filterByName(entries, filters.getName());
-                }
+                entries = startingEntries(type, filters, () -> Admin.getInstance().podcasts());
 
                 if (filters.getOwner() != null) {
-                    entries = filterByOwner(entries, filters.getOwner());
+                    criteria.add(byOwner(filters.getOwner()));
                 }
 
                 break;
             case "album":
-                entries = new ArrayList<>(Admin.getInstance().getAlbums());
-                if (filters.getName() != null) {
-                    entries = filterByName(entries, filters.getName());
-                }
+                entries = startingEntries(type, filters, () -> Admin.getInstance().getAlbums());
                 if (filters.getOwner() != null) {
-                    entries = filterByOwner(entries, filters.getOwner());
+                    criteria.add(byOwner(filters.getOwner()));
                 }
                 if (filters.getDescription() != null) {
-                    entries = filterByDescription(entries, filters.getDescription());
+                    criteria.add(byDescription(filters.getDescription()));
                 }
                 break;
             case "artist":
-                entries = new ArrayList<>(Admin.getInstance().getArtists());
-                if (filters.getName() != null) {
-                    entries = filterByName(entries, filters.getName());
-                }
+                entries = startingEntries(type, filters,
+                        () -> Admin.getInstance().usersOfType(Enums.userType.ARTIST));
                 break;
             case "host":
-                entries = new ArrayList<>(Admin.getInstance().getHosts());
-                if (filters.getName() != null) {
-                    entries = filterByName(entries, filters.getName());
-                }
+                entries = startingEntries(type, filters,
+                        () -> Admin.getInstance().usersOfType(Enums.userType.HOST));
                 break;
             default:
                 entries = new ArrayList<>();
         }
 
-        while (entries.size() > MAX_RESULTS) {
-            entries.remove(entries.size() - 1);
-        }
-
-        this.results = entries;
+        this.results = firstMatching(entries, criteria, MAX_RESULTS);
         this.lastSearchType = type;
         return this.results;
     }
 
+    /**
+     * The entries a search starts from. With a name filter they come straight from the name
+     * index of the searched type, otherwise they are all the entries of that type.
+     * @param type the searched type
+     * @param filters the filters of the search
+     * @param all supplies every entry of the searched type
+     * @return the entries the other filters are applied on
+     */
+    private static Iterable<? extends LibraryEntry> startingEntries(
+            final String type, final Filters filters,
+            final Supplier<Iterable<? extends LibraryEntry>> all) {
+        if (filters.getName() != null) {
+            return Admin.getInstance().getEntriesByName(type, filters.getName());
+        }
+        return all.get();
+    }
+
     /**
      * Used to set a selection
      * @param itemNumber used to find the item we want to select
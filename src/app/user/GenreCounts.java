@@ -0,0 +1,111 @@
+package app.user;
+
+import app.audio.Files.Song;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Counts the liked songs of a user by genre, updated on every like and unlike, so the
+ * favourite genres are known without going over the liked songs.
+ * Genres with the same count are ordered the way a scan of the liked songs in order would
+ * find them: the genre that reached the count first wins, which is the genre whose most
+ * recently liked song was liked earlier.
+ */
+public final class GenreCounts {
+    private final Map<Song, Long> likedAt = new HashMap<>();
+    private final Map<String, Genre> genres = new HashMap<>();
+    private final TreeSet<Genre> ranking = new TreeSet<>(Comparator
+            .comparingInt((Genre genre) -> -genre.likes.size())
+            .thenComparingLong(genre -> genre.likes.last())
+            .thenComparing(genre -> genre.name));
+    private long nextLike = 0;
+
+    /**
+     * Counts a liked song. It must be the most recently liked song of the user.
+     * @param song the liked song
+     */
+    public void liked(final Song song) {
+        if (song.getGenre() == null || likedAt.containsKey(song)) {
+            return;
+        }
+        long like = nextLike++;
+        likedAt.put(song, like);
+        Genre genre = genres.computeIfAbsent(song.getGenre(), Genre::new);
+        ranking.remove(genre);
+        genre.likes.add(like);
+        ranking.add(genre);
+    }
+
+    /**
+     * Stops counting a song that is no longer liked.
+     * @param song the unliked song
+     */
+    public void unliked(final Song song) {
+        Long like = likedAt.remove(song);
+        if (like == null) {
+            return;
+        }
+        Genre genre = genres.get(song.getGenre());
+        ranking.remove(genre);
+        genre.likes.remove(like);
+        if (genre.likes.isEmpty()) {
+            genres.remove(genre.name);
+        } else {
+            ranking.add(genre);
+        }
+    }
+
+    /**
+     * @param genre the exact name of a genre
+     * @return how many liked songs have that genre
+     */
+    public int count(final String genre) {
+        Genre counted = genres.get(genre);
+        return counted == null ? 0 : counted.likes.size();
+    }
+
+    /**
+     * Picks the favourite among the given genres only.
+     * @param candidates the genres that may be picked
+     * @return the candidate with the most liked songs, or null if no liked song has one
+     * of the candidate genres
+     */
+    public String preferred(final String... candidates) {
+        Genre best = null;
+        for (String candidate : candidates) {
+            Genre genre = genres.get(candidate);
+            if (genre != null && (best == null || ranking.comparator().compare(genre, best) < 0)) {
+                best = genre;
+            }
+        }
+        return best == null ? null : best.name;
+    }
+
+    /**
+     * @param count how many genres we want
+     * @return the genres with the most liked songs, best first
+     */
+    public List<String> top(final int count) {
+        List<String> top = new ArrayList<>(count);
+        Iterator<Genre> iterator = ranking.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            top.add(iterator.next().name);
+        }
+        return top;
+    }
+
+    private static final class Genre {
+        private final String name;
+        private final TreeSet<Long> likes = new TreeSet<>();
+
+        Genre(final String name) {
+            this.name = name;
+        }
+    }
+}
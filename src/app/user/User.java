@@ -26,7 +26,10 @@ import lombok.Setter;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 public final class User extends LibraryEntry {
     @Getter
     private String username;
@@ -38,8 +41,8 @@ public final class User extends LibraryEntry {
     private ArrayList<Playlist> playlists;
     @Getter
     private ArrayList<Album> albums;
-    @Getter
-    private ArrayList<Song> likedSongs;
+    private final LinkedHashSet<Song> likedSongs = new LinkedHashSet<>();
+    private final GenreCounts likedGenres = new GenreCounts();
     @Getter
     private ArrayList<Playlist> followedPlaylists;
     @Getter
@@ -55,7 +58,9 @@ public final class User extends LibraryEntry {
     @Getter
     @Setter
     private final Player player;
+    @Getter
     private final SearchBar searchBar;
+    @Getter
     private boolean lastSearched;
     @Getter
     @Setter
@@ -70,10 +75,19 @@ public final class User extends LibraryEntry {
     private boolean pageSetHost = false;
     @Getter
     private boolean pageSetArtist = false;
+    @Getter
     private User lastHost;
+    @Getter
     private User lastArtist;
+    @Getter
     private boolean home = false;
+    private volatile long contentVersion = 0;
+    private volatile RenderedPage hostPage;
+    private volatile RenderedPage artistPage;
+    private volatile RenderedPage homePage;
+    private volatile RenderedPage likedContentPage;
     private static final int MAX_ALLOWED = 5;
+    private static final String[] PREFERRED_GENRES = {"pop", "rock", "rap"};
     private static final int MONTHS = 12;
 
     public User(final String username, final int age,
@@ -84,9 +98,9 @@ public final class User extends LibraryEntry {
         this.city = city;
         playlists = new ArrayList<>();
         albums = new ArrayList<>();
-        likedSongs = new ArrayList<>();
         followedPlaylists = new ArrayList<>();
         player = new Player();
+        player.setLoadListener(hasSource -> Admin.getInstance().loadChanged(this, hasSource));
         searchBar = new SearchBar(username);
         lastSearched = false;
         this.mode = Enums.UserMode.ONLINE;
@@ -132,20 +146,18 @@ public final class User extends LibraryEntry {
             return "The selected ID is too high.";
         }
 
-        List<User> users = Admin.getInstance().getUsers();
-        for (User user : users) {
-            if (user.getUsername().equals(selected.getName())) {
-                if (user.getType() == Enums.userType.HOST) {
-                    pageSetHost = true;
-                    lastHost = user;
-                }
-                if (user.getType() == Enums.userType.ARTIST) {
-                    pageSetArtist = true;
-                    lastArtist = user;
-                }
-                return String.format("Successfully selected %s's page.".
-                        formatted(selected.getName()));
+        User user = Admin.getInstance().getUser(selected.getName());
+        if (user != null) {
+            if (user.getType() == Enums.userType.HOST) {
+                setPage(true, pageSetArtist);
+                lastHost = user;
+            }
+            if (user.getType() == Enums.userType.ARTIST) {
+                setPage(pageSetHost, true);
+                lastArtist = user;
             }
+            return String.format("Successfully selected %s's page.".
+                    formatted(selected.getName()));
         }
         return "Successfully selected %s.".formatted(selected.getName());
 
@@ -301,15 +313,14 @@ public final class User extends LibraryEntry {
 
         Song song = (Song) player.getCurrentAudioFile();
 
-        if (likedSongs.contains(song)) {
-            likedSongs.remove(song);
-            song.dislike();
+        if (removeLikedSong(song)) {
+            Admin.getInstance().dislikeSong(this, song);
 
             return "Unlike registered successfully.";
         }
 
-        likedSongs.add(song);
-        song.like();
+        addLikedSong(song);
+        Admin.getInstance().likeSong(this, song);
         return "Like registered successfully.";
     }
     /**
@@ -358,7 +369,9 @@ public final class User extends LibraryEntry {
             return "A playlist with the same name already exists.";
         }
 
-        playlists.add(new Playlist(name, username, timestamp));
+        Playlist playlist = new Playlist(name, username, timestamp);
+        playlists.add(playlist);
+        Admin.getInstance().addPlaylist(playlist);
 
         return "Playlist created successfully.";
     }
@@ -382,6 +395,9 @@ public final class User extends LibraryEntry {
         }
 
         Playlist playlist = playlists.get(id - 1);
+        // Whoever is listening to the playlist must have played it up to now
+        // before its songs change.
+        Admin.getInstance().syncPlayers();
 
         if (playlist.containsSong((Song) player.getCurrentAudioFile())) {
             playlist.removeSong((Song) player.getCurrentAudioFile());
@@ -418,7 +434,8 @@ public final class User extends LibraryEntry {
     public ArrayList<PlaylistOutput> showPlaylists() {
         ArrayList<PlaylistOutput> playlistOutputs = new ArrayList<>();
         for (Playlist playlist : playlists) {
-            playlistOutputs.add(new PlaylistOutput(playlist));
+            playlistOutputs.add(new PlaylistOutput(playlist,
+                    Admin.getInstance().getFollowers(playlist)));
         }
 
         return playlistOutputs;
@@ -449,13 +466,15 @@ public final class User extends LibraryEntry {
 
         if (followedPlaylists.contains(playlist)) {
             followedPlaylists.remove(playlist);
-            playlist.decreaseFollowers();
+            contentChanged();
+            Admin.getInstance().unfollowPlaylist(this, playlist);
 
             return "Playlist unfollowed successfully.";
         }
 
         followedPlaylists.add(playlist);
-        playlist.increaseFollowers();
+        contentChanged();
+        Admin.getInstance().followPlaylist(this, playlist);
 
 
         return "Playlist followed successfully.";
@@ -470,6 +489,43 @@ public final class User extends LibraryEntry {
         return player.getStats();
     }
 
+    /**
+     * The liked songs are a set in the order they were liked, so checking, adding and
+     * removing a song does not depend on how many songs the user liked.
+     * @return a read only view over the liked songs, in the order they were liked
+     */
+    public Collection<Song> getLikedSongs() {
+        return Collections.unmodifiableSet(likedSongs);
+    }
+
+    /**
+     * Adds a song at the end of the liked songs.
+     * @param song the liked song
+     * @return false if the song was already liked
+     */
+    public boolean addLikedSong(final Song song) {
+        if (!likedSongs.add(song)) {
+            return false;
+        }
+        likedGenres.liked(song);
+        contentChanged();
+        return true;
+    }
+
+    /**
+     * Takes a song out of the liked songs.
+     * @param song the unliked song
+     * @return false if the song was not liked
+     */
+    public boolean removeLikedSong(final Song song) {
+        if (!likedSongs.remove(song)) {
+            return false;
+        }
+        likedGenres.unliked(song);
+        contentChanged();
+        return true;
+    }
+
     /**
      * Used to show the preferred songs of a user.
      * @return an ArrayList with their names.
@@ -488,28 +544,22 @@ public final class User extends LibraryEntry {
      * @return a message which indicates the users preferred genre.
      */
     public String getPreferredGenre() {
-        String[] genres = {"pop", "rock", "rap"};
-        int[] counts = new int[genres.length];
-        int mostLikedIndex = -1;
-        int mostLikedCount = 0;
-
-        for (Song song : likedSongs) {
-            for (int i = 0; i < genres.length; i++) {
-                if (song.getGenre().equals(genres[i])) {
-                    counts[i]++;
-                    if (counts[i] > mostLikedCount) {
-                        mostLikedCount = counts[i];
-                        mostLikedIndex = i;
-                    }
-                    break;
-                }
-            }
+        String preferredGenre = likedGenres.preferred(PREFERRED_GENRES);
+        if (preferredGenre == null) {
+            preferredGenre = "unknown";
         }
-
-        String preferredGenre = mostLikedIndex != -1 ? genres[mostLikedIndex] : "unknown";
         return "This user's preferred genre is %s.".formatted(preferredGenre);
     }
 
+    /**
+     * Used to recommend content: ranks all the genres of the liked songs.
+     * @param count how many genres we want
+     * @return the genres with the most liked songs, best first
+     */
+    public List<String> getTopGenres(final int count) {
+        return likedGenres.top(count);
+    }
+
     /**
      * Used to change the status of a normal user from online to offline
      * @return a message witch indicates if now the user's status has changed
@@ -564,12 +614,11 @@ public final class User extends LibraryEntry {
 
             Album album = new Album(name, owner, timestamp, description, releaseYear, songsAlbum);
             albums.add(album);
+            contentChanged();
             if (this.getPlayer().getSource() != null) {
                 this.getPlayer().getSource().setType(Enums.PlayerSourceType.ALBUM);
             }
-            List<Song> songs = Admin.getInstance().getSongs();
-            songs.addAll(album.getSongs());
-            Admin.getInstance().updateSongList(songs);
+            Admin.getInstance().addAlbum(album);
             return this.username + " has added new album successfully.";
         } else {
             return this.username + " is not an artist.";
@@ -621,18 +670,10 @@ public final class User extends LibraryEntry {
                 boolean albumReferencedByUser = hasAlbumOrSongsFromAlbum(foundAlbum);
                 if (!albumReferencedByUser) {
                     // Remove Songs too.
-                    List<Song> songsToRemove = foundAlbum.getSongs();
-
-                    for (Song song : songsToRemove) {
-                        for (User user : Admin.getInstance().getUsers()) {
-                            user.getLikedSongs().remove(song);
-                        }
-                    }
-
-                    List<Song> all = Admin.getInstance().getSongs();
-                    all.removeAll(songsToRemove);
-                    Admin.getInstance().updateSongList(all);
+                    Admin.getInstance().removeLikes(foundAlbum.getSongs());
+                    Admin.getInstance().removeAlbum(foundAlbum);
                     albums.remove(foundAlbum);
+                    contentChanged();
                     return this.username + " deleted the album successfully.";
                 } else {
                     return this.username + " can't delete this album.";
@@ -676,6 +717,7 @@ public final class User extends LibraryEntry {
             // format error needed
             if (verifyData(date)) {
                 events.add(new Event(name, owner, timestamp, description, date));
+                contentChanged();
                 return this.username + " has added new event successfully.";
             } else {
                 return  "Event for " + this.username + " does not have a valid date.";
@@ -718,6 +760,7 @@ public final class User extends LibraryEntry {
                 return "Price for merchandise can not be negative.";
             }
             merches.add(new Merch(name, owner, timestamp, description, price));
+            contentChanged();
             return this.username + " has added new merchandise successfully.";
         } else {
             return this.username + " is not an artist.";
@@ -743,6 +786,7 @@ public final class User extends LibraryEntry {
                 return this.username + " has already added an announcement with this name.";
             }
             announcements.add(new Announcement(name, owner, timestamp, description));
+            contentChanged();
             return this.username + " has successfully added new announcement.";
         } else {
             return this.username + " is not a host.";
@@ -761,6 +805,7 @@ public final class User extends LibraryEntry {
             for (Announcement announcement : this.getAnnouncements()) {
                 if (announcement.getName().equals(commandInput.getName())) {
                     this.getAnnouncements().remove(announcement);
+                    contentChanged();
                     return commandInput.getUsername() + " has successfully deleted "
                             + "the announcement.";
                 } else {
@@ -785,6 +830,7 @@ public final class User extends LibraryEntry {
             for (Event event : this.getEvents()) {
                 if (event.getName().equals(commandInput.getName())) {
                     this.getEvents().remove(event);
+                    contentChanged();
                     return commandInput.getUsername() + " deleted the event successfully.";
                 } else {
                     return this.username + " doesn't have an event with the given name.";
@@ -797,7 +843,9 @@ public final class User extends LibraryEntry {
     }
 
     /**
-     * Used for the printPage command
+     * Used for the printPage command. The pages are rendered once and kept until what they
+     * show changes (see contentChanged), so many users looking at the same artist or host
+     * page share one rendered page.
      * @return a String with the current page in the required format for
      * each type of page
      */
@@ -809,42 +857,7 @@ public final class User extends LibraryEntry {
                 && searchBar.getLastSelected() != null) || pageSetHost) {
 //             Host page
             if (host != null) {
-                List<Podcast> podcastList = host.getPodcastsHost();
-                List<Announcement> announcementList = host.getAnnouncements();
-
-                StringBuilder builder = new StringBuilder();
-
-                // Podcasts
-                builder.append("Podcasts:\n\t[");
-                if (host.getPodcastsHost() != null && !podcastList.isEmpty()) {
-                    for (Podcast podcast : podcastList) {
-                        builder.append(podcast.getName()).append(":\n\t[");
-                        List<Episode> episodeList = podcast.getEpisodes();
-                        if (!episodeList.isEmpty()) {
-                            for (Episode episode : episodeList) {
-                                builder.append(episode.getName()).append(" - ").
-                                        append(episode.getDescription()).append(", ");
-                            }
-                            builder.setLength(builder.length() - 2);
-                        }
-                        builder.append("]\n, ");
-                    }
-                    builder.setLength(builder.length() - 2);
-                }
-                builder.append("]\n\n");
-
-                // Announcements
-                builder.append("Announcements:\n\t[");
-                if (!announcementList.isEmpty()) {
-                    for (Announcement announcement : announcementList) {
-                        builder.append(announcement.getName()).append(":\n\t").
-                                append(announcement.getDescription()).append(", ");
-                    }
-                    builder.setLength(builder.length() - 2);
-                }
-                builder.append("\n]");
-
-                return builder.toString();
+                return host.getHostPage();
             }
             return "";
         } else
@@ -853,85 +866,194 @@ public final class User extends LibraryEntry {
                     && searchBar.getLastSelected() != null && !home) || pageSetArtist) {
                 // Artist page
                 if (artist != null) {
-                List<Album> albumList = artist.getAlbums();
-                List<Merch> merchList = artist.getMerches();
-                List<Event> eventList = artist.getEvents();
-                StringBuilder builder = new StringBuilder();
-
-                builder.append("Albums:\n\t[");
-                if (!albumList.isEmpty()) {
-                    for (Album album : albumList) {
-                        builder.append(album.getName()).append(", ");
-                    }
-                    builder.delete(builder.length() - 2, builder.length());
-                }
-                builder.append("]\n\n");
-
-                builder.append("Merch:\n\t[");
-                if (!merchList.isEmpty()) {
-                    for (Merch merch : merchList) {
-                        builder.append(merch.getName()).append(" - ").
-                                append(merch.getPrice()).append(":\n\t")
-                                .append(merch.getDescription()).append(", ");
-                    }
-                    builder.delete(builder.length() - 2, builder.length());
-                }
-                builder.append("]\n\n");
-
-                builder.append("Events:\n\t[");
-                if (!eventList.isEmpty()) {
-                    for (Event event : eventList) {
-                        builder.append(event.getName()).append(" - ").append(event.getDate()).
-                                append(":\n\t").append(event.getDescription()).append(", ");
-                    }
-                    builder.delete(builder.length() - 2, builder.length());
-                }
-                builder.append("]");
-
-                return builder.toString();
+                    return artist.getArtistPage();
                 }
                 return "";
             } else {
                 // Home page
-                StringBuilder builder = new StringBuilder();
+                return getHomePage();
+            }
+    }
 
-                if (!this.changedPage) {
-                    List<Song> likedSongs1 = this.getLikedSongs();
-                    List<Playlist> followedPlaylists1 = this.getFollowedPlaylists();
-                    builder.append("Liked songs:\n");
-                    builder.append("\t[").append(formatSongList(likedSongs1)).append("]\n\n");
+    /**
+     * Marks the pages that show the content of this user as out of date. Call it after
+     * changing the albums, merch, events, announcements, podcasts, liked songs or
+     * followed playlists of the user.
+     */
+    public void contentChanged() {
+        contentVersion++;
+    }
 
-                    builder.append("Followed playlists:\n");
-                    builder.append("\t[").append(formatPlaylistList(followedPlaylists1))
-                            .append("]");
-                }
-                if (this.changedPage) {
-                    List<Song> likedSongs2 = this.getLikedSongs();
-                    List<Playlist> followedPlaylists2 = this.getFollowedPlaylists();
-                    // User changed to LikedContentPage
-                    builder.append("Liked songs:\n");
-                    builder.append("\t[").append(formatSongListLikePage(likedSongs2))
-                            .append("]\n\n");
-
-                    builder.append("Followed playlists:\n");
-                    builder.append("\t[").append(formatPlaylistListLikePage(followedPlaylists2))
-                            .append("]");
+    private String getHostPage() {
+        RenderedPage page = hostPage;
+        if (page == null || !page.isCurrent(contentVersion, 0)) {
+            page = new RenderedPage(contentVersion, 0, renderHostPage());
+            hostPage = page;
+        }
+        return page.text;
+    }
+
+    private String getArtistPage() {
+        RenderedPage page = artistPage;
+        if (page == null || !page.isCurrent(contentVersion, 0)) {
+            page = new RenderedPage(contentVersion, 0, renderArtistPage());
+            artistPage = page;
+        }
+        return page.text;
+    }
+
+    private String getHomePage() {
+        // The home page orders the liked songs by their likes, which anybody can change.
+        long likesVersion = changedPage ? 0 : Admin.getInstance().getLikesVersion();
+        RenderedPage page = changedPage ? likedContentPage : homePage;
+        if (page == null || !page.isCurrent(contentVersion, likesVersion)) {
+            page = new RenderedPage(contentVersion, likesVersion, renderHomePage());
+            if (changedPage) {
+                likedContentPage = page;
+            } else {
+                homePage = page;
+            }
+        }
+        return page.text;
+    }
+
+    private String renderHostPage() {
+        List<Podcast> podcastList = getPodcastsHost();
+        List<Announcement> announcementList = getAnnouncements();
+
+        StringBuilder builder = new StringBuilder();
+
+        // Podcasts
+        builder.append("Podcasts:\n\t[");
+        if (getPodcastsHost() != null && !podcastList.isEmpty()) {
+            for (Podcast podcast : podcastList) {
+                builder.append(podcast.getName()).append(":\n\t[");
+                List<Episode> episodeList = podcast.getEpisodes();
+                if (!episodeList.isEmpty()) {
+                    for (Episode episode : episodeList) {
+                        builder.append(episode.getName()).append(" - ").
+                                append(episode.getDescription()).append(", ");
+                    }
+                    builder.setLength(builder.length() - 2);
                 }
-                return builder.toString();
+                builder.append("]\n, ");
+            }
+            builder.setLength(builder.length() - 2);
+        }
+        builder.append("]\n\n");
+
+        // Announcements
+        builder.append("Announcements:\n\t[");
+        if (!announcementList.isEmpty()) {
+            for (Announcement announcement : announcementList) {
+                builder.append(announcement.getName()).append(":\n\t").
+                        append(announcement.getDescription()).append(", ");
+            }
+            builder.setLength(builder.length() - 2);
+        }
+        builder.append("\n]");
+
+        return builder.toString();
+    }
+
+    private String renderArtistPage() {
+        List<Album> albumList = getAlbums();
+        List<Merch> merchList = getMerches();
+        List<Event> eventList = getEvents();
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("Albums:\n\t[");
+        if (!albumList.isEmpty()) {
+            for (Album album : albumList) {
+                builder.append(album.getName()).append(", ");
+            }
+            builder.delete(builder.length() - 2, builder.length());
+        }
+        builder.append("]\n\n");
+
+        builder.append("Merch:\n\t[");
+        if (!merchList.isEmpty()) {
+            for (Merch merch : merchList) {
+                builder.append(merch.getName()).append(" - ").
+                        append(merch.getPrice()).append(":\n\t")
+                        .append(merch.getDescription()).append(", ");
+            }
+            builder.delete(builder.length() - 2, builder.length());
+        }
+        builder.append("]\n\n");
+
+        builder.append("Events:\n\t[");
+        if (!eventList.isEmpty()) {
+            for (Event event : eventList) {
+                builder.append(event.getName()).append(" - ").append(event.getDate()).
+                        append(":\n\t").append(event.getDescription()).append(", ");
             }
+            builder.delete(builder.length() - 2, builder.length());
+        }
+        builder.append("]");
+
+        return builder.toString();
+    }
+
+    private String renderHomePage() {
+        StringBuilder builder = new StringBuilder();
+
+        if (!this.changedPage) {
+            Collection<Song> likedSongs1 = this.getLikedSongs();
+            List<Playlist> followedPlaylists1 = this.getFollowedPlaylists();
+            builder.append("Liked songs:\n");
+            builder.append("\t[").append(formatSongList(likedSongs1)).append("]\n\n");
+
+            builder.append("Followed playlists:\n");
+            builder.append("\t[").append(formatPlaylistList(followedPlaylists1))
+                    .append("]");
+        }
+        if (this.changedPage) {
+            Collection<Song> likedSongs2 = this.getLikedSongs();
+            List<Playlist> followedPlaylists2 = this.getFollowedPlaylists();
+            // User changed to LikedContentPage
+            builder.append("Liked songs:\n");
+            builder.append("\t[").append(formatSongListLikePage(likedSongs2))
+                    .append("]\n\n");
+
+            builder.append("Followed playlists:\n");
+            builder.append("\t[").append(formatPlaylistListLikePage(followedPlaylists2))
+                    .append("]");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A page as it was rendered, with the versions of what it shows at that time.
+     */
+    private static final class RenderedPage {
+        private final long version;
+        private final long likesVersion;
+        private final String text;
+
+        RenderedPage(final long version, final long likesVersion, final String text) {
+            this.version = version;
+            this.likesVersion = likesVersion;
+            this.text = text;
+        }
+
+        boolean isCurrent(final long currentVersion, final long currentLikesVersion) {
+            return version == currentVersion && likesVersion == currentLikesVersion;
+        }
     }
+
     /**
      * Used to set a certain format for the list of songs
      * @param songs represents the list that we want to manipulate
      * @return the list in the format required to display in Home Page
      */
-    private String formatSongList(final List<Song> songs) {
+    private String formatSongList(final Collection<Song> songs) {
         if (songs.isEmpty()) {
             return "";
         }
         List<Song> sortedSongs = new ArrayList<>(songs);
         List<String> songNames = new ArrayList<>();
-        sortedSongs.sort(Comparator.comparingInt(Song::getLikes).reversed());
+        sortedSongs.sort(Comparator.comparingInt(Admin.getInstance()::getLikes).reversed());
         int count = 0;
         for (Song song : sortedSongs) {
             if (count >= MAX_ALLOWED) {
@@ -964,7 +1086,7 @@ public final class User extends LibraryEntry {
      * @param songs represents the list that we want to manipulate
      * @return the list in the format required to display in Like Page
      */
-    private String formatSongListLikePage(final List<Song> songs) {
+    private String formatSongListLikePage(final Collection<Song> songs) {
         if (songs.isEmpty()) {
             return "";
         }
@@ -1010,22 +1132,48 @@ public final class User extends LibraryEntry {
         if (commandInput.getNextPage().equals("Home")) {
             home = true;
             this.setChangedPage(false);
-            pageSetHost = false;
-            pageSetArtist = false;
+            setPage(false, false);
         }
         if (commandInput.getNextPage().equals("LikedContent")) {
             this.setChangedPage(true);
-            pageSetHost = false;
-            pageSetArtist = false;
+            setPage(false, false);
         }
         return this.username + " accessed " + commandInput.getNextPage() + " successfully.";
     }
 
     /**
-     * Used for time management
-     * @param time it is the time we want to reach
+     * Puts back where a user was in the search and on the pages, for example after reading
+     * a checkpoint. The reverse indexes are not told about the page.
+     * @param searched true if the last search was not followed by a selection yet
+     * @param host the host whose page was last selected
+     * @param artist the artist whose page was last selected
+     * @param onHome true if the user went to the home page
+     * @param onHostPage true if the user is on the page of a host
+     * @param onArtistPage true if the user is on the page of an artist
+     */
+    public void restoreNavigation(final boolean searched, final User host, final User artist,
+                                  final boolean onHome, final boolean onHostPage,
+                                  final boolean onArtistPage) {
+        lastSearched = searched;
+        lastHost = host;
+        lastArtist = artist;
+        home = onHome;
+        pageSetHost = onHostPage;
+        pageSetArtist = onArtistPage;
+    }
+
+    private void setPage(final boolean hostPage, final boolean artistPage) {
+        pageSetHost = hostPage;
+        pageSetArtist = artistPage;
+        Admin.getInstance().pageChanged(this);
+    }
+
+    /**
+     * Used for time management: brings the player of the user up to the given moment.
+     * The player only moves while the user is online.
+     * @param timestamp it is the time we want to reach
      */
-    public void simulateTime(final int time) {
-            player.simulatePlayer(time);
+    public void syncTime(final int timestamp) {
+        player.advanceTo(timestamp, mode == Enums.UserMode.ONLINE);
     }
 }
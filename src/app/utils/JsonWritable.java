@@ -0,0 +1,41 @@
+package app.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Something written to the output by hand, field by field, instead of through a tree or
+ * the reflection of the object mapper. The fields are written in the order the object
+ * mapper would write them, so the output stays the same.
+ */
+public interface JsonWritable {
+    /**
+     * Writes the object, with its braces.
+     * @param generator where to write
+     * @throws IOException if the output cannot be written
+     */
+    void write(JsonGenerator generator) throws IOException;
+
+    /**
+     * Writes a field holding a list of strings.
+     * @param generator where to write
+     * @param name the name of the field
+     * @param values the strings, or null
+     * @throws IOException if the output cannot be written
+     */
+    static void writeStrings(final JsonGenerator generator, final String name,
+                             final List<String> values) throws IOException {
+        generator.writeFieldName(name);
+        if (values == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+/**
+ * One measured operation of the benchmarks. The runner builds the workload, calls setUp
+ * before every measured iteration and times run, which performs a number of operations.
+ */
+public abstract class Benchmark {
+    private final String name;
+    private final boolean rebuild;
+
+    /**
+     * @param name the name of the benchmark in the results
+     * @param rebuild true if the operations change the system in a way that makes the next
+     *                iteration measure something else, for example deleting users; the
+     *                workload is then built again before every iteration
+     */
+    protected Benchmark(final String name, final boolean rebuild) {
+        this.name = name;
+        this.rebuild = rebuild;
+    }
+
+    /**
+     * @return the name of the benchmark in the results
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the workload must be built again before every iteration
+     */
+    public final boolean isRebuild() {
+        return rebuild;
+    }
+
+    /**
+     * Prepares the system for one iteration. It is not timed.
+     * @param workload the built workload
+     */
+    public void setUp(final Workload workload) {
+    }
+
+    /**
+     * Runs the measured operations of one iteration.
+     * @param workload the built workload
+     * @return how many operations ran
+     */
+    public abstract int run(Workload workload);
+}
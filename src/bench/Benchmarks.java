@@ -0,0 +1,319 @@
+package bench;
+
+import app.Admin;
+import app.audio.Collections.Playlist;
+import app.audio.Files.Song;
+import app.player.Player;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs the benchmarks on a synthetic system and writes the results as JSON, so results of
+ * two versions can be compared with a plain diff. Everything runs offline from the
+ * compiled sources:
+ * <pre>
+ * java -cp "out:lib/*" bench.Benchmarks --scale=4 --out=results.json
+ * </pre>
+ * Options: --scale=N multiplies the size of the system (see Workload.Scale),
+ * --warmup=N and --iterations=N set the unmeasured and measured iterations,
+ * --only=PREFIX runs only the benchmarks whose name starts with the prefix, and
+ * --out=FILE writes the results to a file instead of the standard output.
+ */
+public final class Benchmarks {
+    private static final int OPERATIONS = 200;
+    private static final int DEFAULT_WARMUP = 3;
+    private static final int DEFAULT_ITERATIONS = 5;
+    private static final int PLAYBACK_TRACKS = 1000;
+    private static final int TRACK_DURATION = 180;
+    private static final int LARGE_GAP = 1_000_003;
+    private static final int SYNC_GAP = 7;
+    private static final int RELEASE_YEAR = 2000;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @param args the options, see the class description
+     * @throws IOException if the results cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        int factor = 1;
+        int warmup = DEFAULT_WARMUP;
+        int iterations = DEFAULT_ITERATIONS;
+        String only = "";
+        String out = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--scale=")) {
+                factor = Integer.parseInt(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(value);
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(value);
+            } else if (arg.startsWith("--only=")) {
+                only = value;
+            } else if (arg.startsWith("--out=")) {
+                out = value;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectNode report = mapper.createObjectNode();
+        report.put("scale", factor);
+        report.put("warmupIterations", warmup);
+        report.put("iterations", iterations);
+        ArrayNode results = report.putArray("results");
+
+        Workload workload = new Workload(new Workload.Scale(factor));
+        for (Benchmark benchmark : all()) {
+            if (benchmark.getName().startsWith(only)) {
+                System.err.println("Running " + benchmark.getName());
+                results.add(measure(benchmark, workload, warmup, iterations, mapper));
+            }
+        }
+        Admin.getInstance().reset();
+
+        if (out == null) {
+            System.out.println(mapper.writeValueAsString(report));
+        } else {
+            mapper.writeValue(new File(out), report);
+        }
+    }
+
+    private static ObjectNode measure(final Benchmark benchmark, final Workload workload,
+                                      final int warmup, final int iterations,
+                                      final ObjectMapper mapper) {
+        workload.build();
+        double total = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        int operations = 0;
+        for (int i = 0; i < warmup + iterations; i++) {
+            if (benchmark.isRebuild() && i > 0) {
+                workload.build();
+            }
+            benchmark.setUp(workload);
+            long start = System.nanoTime();
+            operations = benchmark.run(workload);
+            double nanosPerOperation = (double) (System.nanoTime() - start)
+                    / Math.max(operations, 1);
+            if (i >= warmup) {
+                total += nanosPerOperation;
+                min = Math.min(min, nanosPerOperation);
+                max = Math.max(max, nanosPerOperation);
+            }
+        }
+
+        ObjectNode result = mapper.createObjectNode();
+        result.put("benchmark", benchmark.getName());
+        result.put("operationsPerIteration", operations);
+        result.put("nsPerOp", Math.round(total / Math.max(iterations, 1)));
+        result.put("minNsPerOp", Math.round(iterations > 0 ? min : 0));
+        result.put("maxNsPerOp", Math.round(max));
+        return result;
+    }
+
+    private static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(search("search.song.name", "song", Workload.filter("name", "song 1")));
+        benchmarks.add(search("search.song.tags", "song",
+                Workload.tagsFilter("#chill", "#party")));
+        benchmarks.add(search("search.song.genre", "song", Workload.filter("genre", "rock")));
+        benchmarks.add(search("search.song.artist", "song",
+                Workload.filter("artist", Workload.artistName(1))));
+        benchmarks.add(search("search.song.album", "song",
+                Workload.filter("album", Workload.albumName(Workload.artistName(1), 0))));
+        benchmarks.add(search("search.song.lyrics", "song",
+                Workload.filter("lyrics", "river light")));
+        benchmarks.add(search("search.song.releaseYear", "song",
+                Workload.filter("releaseYear", "<1990")));
+        benchmarks.add(search("search.playlist.name", "playlist",
+                Workload.filter("name", "playlist of user1")));
+        benchmarks.add(search("search.playlist.owner", "playlist",
+                Workload.filter("owner", Workload.userName(1))));
+        benchmarks.add(search("search.playlist.followers", "playlist",
+                Workload.filter("followers", ">0")));
+        benchmarks.add(search("search.podcast.name", "podcast",
+                Workload.filter("name", Workload.hostName(1))));
+        benchmarks.add(search("search.album.name", "album",
+                Workload.filter("name", Workload.artistName(1))));
+        benchmarks.add(search("search.artist.name", "artist",
+                Workload.filter("name", Workload.artistName(1))));
+        benchmarks.add(search("search.host.name", "host",
+                Workload.filter("name", Workload.hostName(1))));
+
+        benchmarks.add(simple("updateTimestamp.playingUsers", false, Benchmarks::playAll,
+                workload -> {
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        Admin.getInstance().updateTimestamp(workload.advance(SYNC_GAP));
+                        Admin.getInstance().syncPlayers();
+                    }
+                    return OPERATIONS;
+                }));
+        benchmarks.add(new Playback());
+
+        for (String statistic : new String[]{"getTop5Songs", "getTop5Albums",
+            "getTop5Artists", "getTop5Playlists"}) {
+            benchmarks.add(simple("stats." + statistic, false, workload -> { },
+                    workload -> {
+                        for (int i = 0; i < OPERATIONS; i++) {
+                            workload.run(workload.command(statistic, null));
+                        }
+                        return OPERATIONS;
+                    }));
+        }
+
+        benchmarks.add(simple("deleteUser.user", true, workload -> { }, workload -> {
+            int users = workload.getScale().getUsers();
+            for (int i = 0; i < users; i++) {
+                workload.run(workload.command("deleteUser", Workload.userName(i)));
+            }
+            return users;
+        }));
+        benchmarks.add(simple("deleteUser.artist", true, workload -> { }, workload -> {
+            int artists = workload.getScale().getArtists();
+            for (int i = 0; i < artists; i++) {
+                workload.run(workload.command("deleteUser", Workload.artistName(i)));
+            }
+            return artists;
+        }));
+        benchmarks.add(simple("removeAlbum", true, workload -> { }, workload -> {
+            int artists = workload.getScale().getArtists();
+            for (int i = 0; i < artists; i++) {
+                String artist = Workload.artistName(i);
+                workload.run(workload.command("removeAlbum", artist)
+                        .put("name", Workload.albumName(artist, 0)));
+            }
+            return artists;
+        }));
+
+        benchmarks.add(simple("checkpoint.write", false, workload -> { }, workload -> {
+            writeCheckpoint(workload);
+            return 1;
+        }));
+        benchmarks.add(simple("checkpoint.restore", false, Benchmarks::writeCheckpoint,
+                workload -> {
+                    try {
+                        Admin.getInstance().restoreCheckpoint(workload.getCheckpoint());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return 1;
+                }));
+
+        benchmarks.add(simple("printCurrentPage.home", false, workload -> { },
+                Benchmarks::printPages));
+        benchmarks.add(simple("printCurrentPage.artist", false, workload -> {
+            int users = workload.getScale().getUsers();
+            for (int i = 0; i < users; i++) {
+                workload.searchAndSelect(Workload.userName(i), "artist",
+                        Workload.filter("name", Workload.artistName(0)));
+            }
+        }, Benchmarks::printPages));
+        return benchmarks;
+    }
+
+    private static Benchmark search(final String name, final String type,
+                                    final ObjectNode filters) {
+        return simple(name, false, workload -> { }, workload -> {
+            int users = workload.getScale().getUsers();
+            for (int i = 0; i < OPERATIONS; i++) {
+                workload.run(workload.search(Workload.userName(i % users), type, filters));
+            }
+            return OPERATIONS;
+        });
+    }
+
+    private static void playAll(final Workload workload) {
+        int users = workload.getScale().getUsers();
+        for (int i = 0; i < users; i++) {
+            workload.load(Workload.userName(i), "playlist",
+                    Workload.filter("owner", Workload.userName(i)));
+        }
+    }
+
+    private static void writeCheckpoint(final Workload workload) {
+        try {
+            Admin.getInstance().writeCheckpoint(workload.getCheckpoint());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int printPages(final Workload workload) {
+        int users = workload.getScale().getUsers();
+        for (int i = 0; i < OPERATIONS; i++) {
+            workload.run(workload.command("printCurrentPage", Workload.userName(i % users)));
+        }
+        return OPERATIONS;
+    }
+
+    private static Benchmark simple(final String name, final boolean rebuild,
+                                    final Consumer<Workload> setUp,
+                                    final ToIntFunction<Workload> run) {
+        return new Benchmark(name, rebuild) {
+            @Override
+            public void setUp(final Workload workload) {
+                setUp.accept(workload);
+            }
+
+            @Override
+            public int run(final Workload workload) {
+                return run.applyAsInt(workload);
+            }
+        };
+    }
+
+    /**
+     * Plays a long playlist on repeat and moves the clock by a gap of many playlist
+     * lengths at a time, outside of the command layer.
+     */
+    private static final class Playback extends Benchmark {
+        private final List<Player> players = new ArrayList<>();
+        private int clock;
+
+        Playback() {
+            super("player.simulate.largeGap", false);
+        }
+
+        @Override
+        public void setUp(final Workload workload) {
+            Playlist playlist = new Playlist("benchmark", "benchmark");
+            for (int i = 0; i < PLAYBACK_TRACKS; i++) {
+                playlist.addSong(new Song(Workload.songName(i), TRACK_DURATION + i % 2,
+                        "album", new ArrayList<>(), "", "pop", RELEASE_YEAR, "artist"));
+            }
+            players.clear();
+            for (int i = 0; i < OPERATIONS; i++) {
+                Player player = new Player();
+                player.setSource(playlist, "playlist");
+                player.pause();
+                player.repeat();
+                players.add(player);
+            }
+            clock = 0;
+        }
+
+        @Override
+        public int run(final Workload workload) {
+            clock += LARGE_GAP;
+            for (Player player : players) {
+                player.advanceTo(clock, true);
+            }
+            return players.size();
+        }
+    }
+}
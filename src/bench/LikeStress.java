@@ -0,0 +1,224 @@
+package bench;
+
+import app.Admin;
+import app.CommandDispatcher;
+import app.audio.Files.Song;
+import app.user.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fileio.input.CommandInput;
+import fileio.input.SongInput;
+import fileio.input.UserInput;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+/**
+ * Checks that no like is lost when many threads like and unlike the same songs at the same
+ * time, once calling Admin directly and once sending like commands to the dispatcher.
+ * Every thread has its own user. Through Admin the likes of different users are published
+ * at the same time, under the shared lock only; like commands are GLOBAL and run one after
+ * the other. It runs offline from the compiled sources and exits with status 1 if a count
+ * is wrong:
+ * <pre>
+ * java -cp "out:lib/*" bench.LikeStress --threads=64 --rounds=1000
+ * </pre>
+ */
+public final class LikeStress {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int DEFAULT_THREADS = 64;
+    private static final int DEFAULT_ROUNDS = 1000;
+    private static final int SONGS = 8;
+    private static final int TOP = 5;
+    private static final int DURATION = 1_000_000;
+    private static final int AGE = 20;
+    private static final int TIMESTAMP = 1;
+
+    private LikeStress() {
+    }
+
+    /**
+     * @param args --threads=N sets the number of threads and users, --rounds=N how many
+     *             times every thread likes and unlikes every song
+     * @throws InterruptedException if the check is interrupted
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        int threads = DEFAULT_THREADS;
+        int rounds = DEFAULT_ROUNDS;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        build(threads);
+        likeThroughAdmin(threads, rounds, errors);
+        likeThroughCommands(threads, rounds, errors);
+        Admin.getInstance().reset();
+
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.err.println(error);
+            }
+            System.exit(1);
+        }
+        System.out.println("No lost likes with " + threads + " threads and " + rounds
+                + " rounds.");
+    }
+
+    private static void build(final int threads) {
+        List<UserInput> users = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            ObjectNode user = MAPPER.createObjectNode().put("username", Workload.userName(i))
+                    .put("age", AGE).put("city", "city");
+            users.add(MAPPER.convertValue(user, UserInput.class));
+        }
+        List<SongInput> songs = new ArrayList<>();
+        for (int i = 0; i < SONGS; i++) {
+            ObjectNode song = MAPPER.createObjectNode().put("name", songName(i))
+                    .put("duration", DURATION).put("album", "album").put("lyrics", "")
+                    .put("genre", "pop").put("releaseYear", AGE).put("artist", "artist");
+            song.putArray("tags");
+            songs.add(MAPPER.convertValue(song, SongInput.class));
+        }
+        Admin.getInstance().reset();
+        Admin.getInstance().setUsers(users);
+        Admin.getInstance().setSongs(songs);
+    }
+
+    /**
+     * Every thread likes and unlikes every song through Admin, then likes them once more,
+     * so every song must end with one like for every thread, and the songs, all tied, must
+     * be ranked in library order.
+     */
+    private static void likeThroughAdmin(final int threads, final int rounds,
+                                         final List<String> errors)
+            throws InterruptedException {
+        Admin admin = Admin.getInstance();
+        List<Song> songs = admin.getSongs();
+        runTogether(threads, errors, index -> {
+            User user = admin.getUser(Workload.userName(index));
+            for (int round = 0; round < rounds; round++) {
+                for (Song song : songs) {
+                    admin.likeSong(user, song);
+                }
+                for (Song song : songs) {
+                    admin.dislikeSong(user, song);
+                }
+            }
+            for (Song song : songs) {
+                admin.likeSong(user, song);
+            }
+        });
+
+        List<String> expectedTop = new ArrayList<>();
+        for (Song song : songs) {
+            check(errors, "Admin likes of " + song.getName(), threads, admin.getLikes(song));
+            if (expectedTop.size() < TOP) {
+                expectedTop.add(song.getName());
+            }
+        }
+        if (!expectedTop.equals(admin.getTop5Songs())) {
+            errors.add("Admin top 5 songs: expected " + expectedTop + ", found "
+                    + admin.getTop5Songs());
+        }
+
+        for (int i = 0; i < threads; i++) {
+            User user = admin.getUser(Workload.userName(i));
+            for (Song song : songs) {
+                admin.dislikeSong(user, song);
+            }
+        }
+    }
+
+    /**
+     * Every user loads one of the songs, then every thread sends an odd number of like
+     * commands for its user, so every user must end liking its song once.
+     */
+    private static void likeThroughCommands(final int threads, final int rounds,
+                                            final List<String> errors)
+            throws InterruptedException {
+        for (int i = 0; i < threads; i++) {
+            String username = Workload.userName(i);
+            ObjectNode search = command("search", username).put("type", "song");
+            search.putObject("filters").put("name", songName(i % SONGS));
+            dispatch(search);
+            dispatch(command("select", username).put("itemNumber", 1));
+            dispatch(command("load", username));
+        }
+
+        runTogether(threads, errors, index -> {
+            String username = Workload.userName(index);
+            for (int round = 0; round < 2 * rounds + 1; round++) {
+                dispatch(command("like", username));
+            }
+        });
+
+        Admin admin = Admin.getInstance();
+        List<Song> songs = admin.getSongs();
+        for (int i = 0; i < songs.size(); i++) {
+            int listeners = threads / SONGS + (i < threads % SONGS ? 1 : 0);
+            check(errors, "Command likes of " + songs.get(i).getName(), listeners,
+                    admin.getLikes(songs.get(i)));
+        }
+        for (int i = 0; i < threads; i++) {
+            User user = admin.getUser(Workload.userName(i));
+            check(errors, "Liked songs of " + user.getUsername(), 1,
+                    user.getLikedSongs().size());
+        }
+    }
+
+    private static void runTogether(final int threads, final List<String> errors,
+                                    final IntConsumer work) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    work.accept(index);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    errors.add("Thread " + index + " failed: " + e);
+                }
+            });
+            thread.start();
+            running.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : running) {
+            thread.join();
+        }
+    }
+
+    private static void check(final List<String> errors, final String what,
+                              final int expected, final int found) {
+        if (expected != found) {
+            errors.add(what + ": expected " + expected + ", found " + found);
+        }
+    }
+
+    private static ObjectNode command(final String name, final String username) {
+        return MAPPER.createObjectNode().put("command", name).put("username", username)
+                .put("timestamp", TIMESTAMP);
+    }
+
+    private static void dispatch(final ObjectNode command) {
+        CommandDispatcher.dispatch(MAPPER.convertValue(command, CommandInput.class));
+    }
+
+    private static String songName(final int index) {
+        return "stress song " + index;
+    }
+}
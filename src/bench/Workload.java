@@ -0,0 +1,378 @@
+package bench;
+
+import app.Admin;
+import app.CommandDispatcher;
+import app.CommandOutput;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fileio.input.CommandInput;
+import fileio.input.LibraryInput;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Builds a synthetic system of a given size and sends commands to it, the same way a
+ * replay would. Everything is generated from a fixed seed, so two runs of the benchmarks
+ * work on exactly the same data.
+ * The library holds the songs, the normal users and the library podcasts. Artists with
+ * their albums, hosts with their podcasts and the playlists of the users are added with
+ * commands, and every user likes a few songs and follows a few playlists.
+ */
+public final class Workload {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long SEED = 42;
+    private static final String[] GENRES = {"pop", "rock", "rap", "jazz", "blues", "metal"};
+    private static final String[] TAGS = {"#chill", "#party", "#sad", "#happy", "#classic"};
+    private static final String[] WORDS = {"love", "night", "river", "light", "dream",
+        "road", "heart", "fire", "rain", "sky", "gold", "stone"};
+    private static final int WORDS_PER_LYRICS = 24;
+    private static final int MIN_DURATION = 60;
+    private static final int DURATION_RANGE = 240;
+    private static final int FIRST_YEAR = 1960;
+    private static final int YEAR_RANGE = 64;
+    private static final int MIN_AGE = 16;
+    private static final int AGE_RANGE = 50;
+    private static final int TIME_STEP = 5;
+
+    private final Scale scale;
+    private final Random random = new Random(SEED);
+    private int timestamp = 0;
+    private Path checkpoint;
+
+    /**
+     * How big the generated system is.
+     */
+    @Getter
+    public static final class Scale {
+        private static final int SONGS = 2000;
+        private static final int USERS = 100;
+        private static final int ARTISTS = 20;
+        private static final int ALBUMS = 3;
+        private static final int ALBUM_SONGS = 10;
+        private static final int HOSTS = 10;
+        private static final int EPISODES = 20;
+        private static final int PLAYLIST_SONGS = 20;
+        private static final int LIKES = 10;
+
+        private final int songs;
+        private final int users;
+        private final int artists;
+        private final int albumsPerArtist;
+        private final int songsPerAlbum;
+        private final int hosts;
+        private final int episodesPerPodcast;
+        private final int playlistSongs;
+        private final int likesPerUser;
+
+        /**
+         * @param factor how many times bigger than the default system; the per-entity
+         *               sizes (albums of an artist, songs of an album...) stay the same
+         */
+        public Scale(final int factor) {
+            this.songs = SONGS * factor;
+            this.users = USERS * factor;
+            this.artists = ARTISTS * factor;
+            this.albumsPerArtist = ALBUMS;
+            this.songsPerAlbum = ALBUM_SONGS;
+            this.hosts = HOSTS * factor;
+            this.episodesPerPodcast = EPISODES;
+            this.playlistSongs = PLAYLIST_SONGS;
+            this.likesPerUser = LIKES;
+        }
+    }
+
+    public Workload(final Scale scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * @return the size of the system
+     */
+    public Scale getScale() {
+        return scale;
+    }
+
+    /**
+     * @return a temporary file for the checkpoint benchmarks, deleted when the process exits
+     */
+    public Path getCheckpoint() {
+        if (checkpoint == null) {
+            try {
+                checkpoint = Files.createTempFile("globalwaves", ".checkpoint");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            checkpoint.toFile().deleteOnExit();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Clears the system and builds it again from the seed.
+     */
+    public void build() {
+        Admin.getInstance().reset();
+        random.setSeed(SEED);
+        timestamp = 0;
+
+        LibraryInput library = MAPPER.convertValue(library(), LibraryInput.class);
+        Admin.getInstance().setUsers(library.getUsers());
+        Admin.getInstance().setSongs(library.getSongs());
+        Admin.getInstance().setPodcasts(library.getPodcasts());
+
+        for (int artist = 0; artist < scale.getArtists(); artist++) {
+            addArtist(artistName(artist));
+        }
+        for (int host = 0; host < scale.getHosts(); host++) {
+            addHost(hostName(host));
+        }
+        for (int user = 0; user < scale.getUsers(); user++) {
+            fillUser(userName(user));
+        }
+    }
+
+    /**
+     * @param index the index of a normal user
+     * @return the username of that user
+     */
+    public static String userName(final int index) {
+        return "user" + index;
+    }
+
+    /**
+     * @param index the index of an artist
+     * @return the username of that artist
+     */
+    public static String artistName(final int index) {
+        return "artist" + index;
+    }
+
+    /**
+     * @param index the index of a host
+     * @return the username of that host
+     */
+    public static String hostName(final int index) {
+        return "host" + index;
+    }
+
+    /**
+     * @param artist the username of an artist
+     * @param index the index of the album
+     * @return the name of that album
+     */
+    public static String albumName(final String artist, final int index) {
+        return artist + " album " + index;
+    }
+
+    /**
+     * @param index the index of a library song
+     * @return the name of that song
+     */
+    public static String songName(final int index) {
+        return "song " + index;
+    }
+
+    /**
+     * @return a random word of the generated lyrics
+     */
+    public String randomWord() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * @param bound the exclusive upper bound
+     * @return a random number from the seeded generator
+     */
+    public int nextInt(final int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Starts a command. The timestamp moves forward with every command.
+     * @param name the name of the command
+     * @param username the user running it, or null for commands without a user
+     * @return the command, to which the other fields can be added
+     */
+    public ObjectNode command(final String name, final String username) {
+        timestamp += TIME_STEP;
+        ObjectNode command = MAPPER.createObjectNode();
+        command.put("command", name);
+        if (username != null) {
+            command.put("username", username);
+        }
+        command.put("timestamp", timestamp);
+        return command;
+    }
+
+    /**
+     * Runs a command the way a replay would.
+     * @param command the command
+     * @return the output of the command
+     */
+    public CommandOutput run(final ObjectNode command) {
+        return CommandDispatcher.dispatch(MAPPER.convertValue(command, CommandInput.class));
+    }
+
+    /**
+     * Moves the clock forward without running a command.
+     * @param seconds how much time passes
+     * @return the new timestamp
+     */
+    public int advance(final int seconds) {
+        timestamp += seconds;
+        return timestamp;
+    }
+
+    /**
+     * Searches, selects the first result and loads it.
+     * @param username the user
+     * @param type the searched type
+     * @param filters the filters of the search
+     */
+    public void load(final String username, final String type, final ObjectNode filters) {
+        searchAndSelect(username, type, filters);
+        run(command("load", username));
+    }
+
+    /**
+     * Searches and selects the first result.
+     * @param username the user
+     * @param type the searched type
+     * @param filters the filters of the search
+     */
+    public void searchAndSelect(final String username, final String type,
+                                final ObjectNode filters) {
+        run(search(username, type, filters));
+        run(command("select", username).put("itemNumber", 1));
+    }
+
+    /**
+     * @param username the user
+     * @param type the searched type
+     * @param filters the filters of the search
+     * @return a search command
+     */
+    public ObjectNode search(final String username, final String type,
+                             final ObjectNode filters) {
+        ObjectNode search = command("search", username).put("type", type);
+        search.set("filters", filters);
+        return search;
+    }
+
+    /**
+     * @param field the filter
+     * @param value the value of the filter
+     * @return filters with only that filter
+     */
+    public static ObjectNode filter(final String field, final String value) {
+        return MAPPER.createObjectNode().put(field, value);
+    }
+
+    /**
+     * @param tags the searched tags
+     * @return filters with only the tags filter
+     */
+    public static ObjectNode tagsFilter(final String... tags) {
+        ObjectNode filters = MAPPER.createObjectNode();
+        ArrayNode values = filters.putArray("tags");
+        for (String tag : tags) {
+            values.add(tag);
+        }
+        return filters;
+    }
+
+    private JsonNode library() {
+        ObjectNode library = MAPPER.createObjectNode();
+        ArrayNode songs = library.putArray("songs");
+        for (int i = 0; i < scale.getSongs(); i++) {
+            songs.add(song(songName(i), "library album " + (i % scale.getUsers()),
+                    "library artist " + (i % scale.getArtists())));
+        }
+        ArrayNode users = library.putArray("users");
+        for (int i = 0; i < scale.getUsers(); i++) {
+            users.addObject().put("username", userName(i))
+                    .put("age", MIN_AGE + random.nextInt(AGE_RANGE)).put("city", "city");
+        }
+        library.putArray("podcasts");
+        return library;
+    }
+
+    private ObjectNode song(final String name, final String album, final String artist) {
+        ObjectNode song = MAPPER.createObjectNode();
+        song.put("name", name);
+        song.put("duration", MIN_DURATION + random.nextInt(DURATION_RANGE));
+        song.put("album", album);
+        ArrayNode tags = song.putArray("tags");
+        tags.add(TAGS[random.nextInt(TAGS.length)]);
+        tags.add(TAGS[random.nextInt(TAGS.length)]);
+        StringBuilder lyrics = new StringBuilder();
+        for (int i = 0; i < WORDS_PER_LYRICS; i++) {
+            lyrics.append(randomWord()).append(' ');
+        }
+        song.put("lyrics", lyrics.toString().trim());
+        song.put("genre", GENRES[random.nextInt(GENRES.length)]);
+        song.put("releaseYear", FIRST_YEAR + random.nextInt(YEAR_RANGE));
+        song.put("artist", artist);
+        return song;
+    }
+
+    private void addArtist(final String artist) {
+        run(command("addUser", artist).put("type", "artist").put("age", MIN_AGE)
+                .put("city", "city"));
+        for (int album = 0; album < scale.getAlbumsPerArtist(); album++) {
+            String name = albumName(artist, album);
+            ObjectNode addAlbum = command("addAlbum", artist).put("name", name)
+                    .put("releaseYear", FIRST_YEAR).put("description", "description");
+            ArrayNode songs = addAlbum.putArray("songs");
+            for (int song = 0; song < scale.getSongsPerAlbum(); song++) {
+                songs.add(song(name + " song " + song, name, artist));
+            }
+            run(addAlbum);
+        }
+        run(command("addMerch", artist).put("name", "merch").put("description", "merch")
+                .put("price", 1));
+    }
+
+    private void addHost(final String host) {
+        run(command("addUser", host).put("type", "host").put("age", MIN_AGE)
+                .put("city", "city"));
+        ObjectNode addPodcast = command("addPodcast", host).put("name", host + " podcast");
+        ArrayNode episodes = addPodcast.putArray("episodes");
+        for (int episode = 0; episode < scale.getEpisodesPerPodcast(); episode++) {
+            episodes.addObject().put("name", host + " episode " + episode)
+                    .put("duration", MIN_DURATION + random.nextInt(DURATION_RANGE))
+                    .put("description", "description");
+        }
+        run(addPodcast);
+        run(command("addAnnouncement", host).put("name", "news")
+                .put("description", "description"));
+    }
+
+    private void fillUser(final String username) {
+        run(command("createPlaylist", username).put("playlistName",
+                "playlist of " + username));
+        for (int i = 0; i < scale.getPlaylistSongs(); i++) {
+            load(username, "song", filter("name", songName(random.nextInt(scale.getSongs()))));
+            run(command("addRemoveInPlaylist", username).put("playlistId", 1));
+        }
+        for (int i = 0; i < scale.getLikesPerUser(); i++) {
+            String artist = artistName(random.nextInt(scale.getArtists()));
+            String album = albumName(artist, random.nextInt(scale.getAlbumsPerArtist()));
+            load(username, "album", filter("name", album));
+            run(command("like", username));
+        }
+        if (scale.getUsers() > 1) {
+            searchAndSelect(username, "playlist", filter("owner",
+                    userName(random.nextInt(scale.getUsers()))));
+            run(command("follow", username));
+        }
+        run(search(username, "song", filter("name", "")));
+    }
+}
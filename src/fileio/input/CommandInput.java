@@ -1,5 +1,7 @@
 package fileio.input;
 
+import app.user.User;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.ArrayList;
 
@@ -24,9 +26,21 @@ public final class CommandInput {
     private Integer price;
     private ArrayList<EpisodeInput> episodes;
     private String nextPage;
+    @JsonIgnore
+    private User user; // resolved by the dispatcher, not part of the input
 
     public CommandInput() {
     }
+    @JsonIgnore
+    public User getUser() {
+        return user;
+    }
+
+    @JsonIgnore
+    public void setUser(final User user) {
+        this.user = user;
+    }
+
     public String getType() {
         return type;
     }
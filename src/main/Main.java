@@ -1,16 +1,22 @@
 package main;
 
 import app.Admin;
-import app.CommandRunner;
+import app.CommandDispatcher;
+import app.CommandLog;
+import app.CommandScheduler;
+import app.RecordingInputStream;
+import app.ReplayOutput;
 import checker.Checker;
 import checker.CheckerConstants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import app.catalog.LibrarySnapshot;
 import fileio.input.CommandInput;
-import fileio.input.LibraryInput;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -21,6 +27,14 @@ import java.util.Objects;
  * The entry point to this homework. It runs the checker that tests your implementation.
  */
 public final class Main {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String COMPACT_OUTPUT = "globalwaves.compactOutput";
+    private static final String COMMAND_STATISTICS = "globalwaves.commandStatistics";
+    private static final String THREADS = "globalwaves.threads";
+    private static final String COMMAND_LOG = "globalwaves.commandLog";
+    private static final String CHECKPOINT_EVERY = "globalwaves.checkpointEvery";
+    private static final long DEFAULT_CHECKPOINT_EVERY = 10_000;
+
     /**
      * for coding style
      */
@@ -63,79 +77,87 @@ public final class Main {
     }
 
     /**
+     * Replays a command file. Commands are read one at a time and every result is written
+     * as soon as it is produced, so memory use does not grow with the number of commands.
+     * The output is pretty printed unless the globalwaves.compactOutput system property
+     * is set to true. With globalwaves.commandStatistics set to true, the number of runs and
+     * the time spent in every command are printed to the standard error after the file.
+     * The commands of different users run in parallel on globalwaves.threads threads
+     * (by default one per processor; 1 runs everything in order on this thread).
+     * With globalwaves.commandLog set to a directory, the commands are logged there before
+     * they run and the state is saved every globalwaves.checkpointEvery commands (see
+     * CommandLog). If a replay of the same file died, the next one recovers its state and its
+     * output file from the log and goes on with the first command that did not run, so the
+     * output is the same as if it had never stopped. The log is deleted once the replay is
+     * complete.
      * @param filePath1 for input file
      * @param filePath2 for output file
      * @throws IOException in case of exceptions to reading / writing
      */
     public static void action(final String filePath1,
                               final String filePath2) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        LibraryInput library = objectMapper.readValue(new File(CheckerConstants.TESTS_PATH
-                + "library/library.json"), LibraryInput.class);
-        CommandInput[] commands = objectMapper.readValue(new File(CheckerConstants.TESTS_PATH
-                + filePath1), CommandInput[].class);
-        ArrayNode outputs = objectMapper.createArrayNode();
-
-        Admin.getInstance().setUsers(library.getUsers());
-        Admin.getInstance().setSongs(library.getSongs());
-        Admin.getInstance().setPodcasts(library.getPodcasts());
-
-        for (CommandInput command : commands) {
-            Admin.getInstance().updateTimestamp(command.getTimestamp());
+        ObjectMapper objectMapper = OBJECT_MAPPER;
+        LibrarySnapshot library = LibrarySnapshot.load(new File(CheckerConstants.TESTS_PATH
+                + "library/library.json"));
+        Admin.getInstance().setLibrary(library);
 
-            String commandName = command.getCommand();
+        String logDirectory = System.getProperty(COMMAND_LOG);
+        long checkpointEvery = Long.getLong(CHECKPOINT_EVERY, DEFAULT_CHECKPOINT_EVERY);
 
-            switch (commandName) {
-                case "search" -> outputs.add(CommandRunner.search(command));
-                case "select" -> outputs.add(CommandRunner.select(command));
-                case "load" -> outputs.add(CommandRunner.load(command));
-                case "playPause" -> outputs.add(CommandRunner.playPause(command));
-                case "repeat" -> outputs.add(CommandRunner.repeat(command));
-                case "shuffle" -> outputs.add(CommandRunner.shuffle(command));
-                case "forward" -> outputs.add(CommandRunner.forward(command));
-                case "backward" -> outputs.add(CommandRunner.backward(command));
-                case "like" -> outputs.add(CommandRunner.like(command));
-                case "next" -> outputs.add(CommandRunner.next(command));
-                case "prev" -> outputs.add(CommandRunner.prev(command));
-                case "createPlaylist" -> outputs.add(CommandRunner.createPlaylist(command));
-                case "addRemoveInPlaylist" ->
-                        outputs.add(CommandRunner.addRemoveInPlaylist(command));
-                case "switchVisibility" -> outputs.add(CommandRunner.switchVisibility(command));
-                case "showPlaylists" -> outputs.add(CommandRunner.showPlaylists(command));
-                case "follow" -> outputs.add(CommandRunner.follow(command));
-                case "status" -> outputs.add(CommandRunner.status(command));
-                case "showPreferredSongs" -> outputs.add(CommandRunner.showLikedSongs(command));
-                case "getPreferredGenre" -> outputs.add(CommandRunner.getPreferredGenre(command));
-                case "getTop5Songs" -> outputs.add(CommandRunner.getTop5Songs(command));
-                case "getTop5Playlists" -> outputs.add(CommandRunner.getTop5Playlists(command));
-                case "getTop5Albums" -> outputs.add(CommandRunner.getTop5Albums(command));
-                case "switchConnectionStatus" ->
-                        outputs.add(CommandRunner.switchConnectionStatus(command));
-                case "getOnlineUsers" -> outputs.add(CommandRunner.getOnlineUsers(command));
-                case "addUser" -> outputs.add(CommandRunner.addUser(command));
-                case "addAlbum" -> outputs.add(CommandRunner.addAlbum(command));
-                case "removeAlbum" -> outputs.add(CommandRunner.removeAlbum(command));
-                case "showAlbums" -> outputs.add(CommandRunner.showAlbums(command));
-                case "addEvent" -> outputs.add(CommandRunner.addEvent(command));
-                case "removeEvent" -> outputs.add(CommandRunner.removeEvent(command));
-                case "printCurrentPage" -> outputs.add(CommandRunner.printCurrentPage(command));
-                case "getAllUsers" -> outputs.add(CommandRunner.getAllUsers(command));
-                case "deleteUser" -> outputs.add(CommandRunner.deleteUser(command));
-                case "addMerch" -> outputs.add(CommandRunner.addMerch(command));
-                case "addAnnouncement" -> outputs.add(CommandRunner.addAnnouncement(command));
-                case "removeAnnouncement" -> outputs.add(CommandRunner.removeAnnouncement(command));
-                case "addPodcast" -> outputs.add(CommandRunner.addPodcast(command));
-                case "removePodcast" -> outputs.add(CommandRunner.removePodcast(command));
-                case "showPodcasts" -> outputs.add(CommandRunner.showPodcasts(command));
-                case "changePage" -> outputs.add(CommandRunner.changePage(command));
-                case "getTop5Artists" -> outputs.add(CommandRunner.getTop5Artists(command));
-                default -> System.out.println("Invalid command " + commandName);
+        JsonFactory factory = objectMapper.getFactory();
+        File inputFile = new File(CheckerConstants.TESTS_PATH + filePath1);
+        try (CommandLog log = logDirectory == null ? null
+                : CommandLog.open(Paths.get(logDirectory, filePath1));
+             RecordingInputStream recorder = log == null ? null
+                : new RecordingInputStream(new FileInputStream(inputFile));
+             JsonParser parser = recorder == null ? factory.createParser(inputFile)
+                : factory.createParser(recorder);
+             CommandScheduler scheduler = new CommandScheduler(Integer.getInteger(THREADS,
+                     Runtime.getRuntime().availableProcessors()))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(filePath1 + " is not an array of commands");
+            }
+            ReplayOutput.Position start = log == null ? ReplayOutput.Position.START
+                    : log.restore();
+            try (ReplayOutput output = ReplayOutput.open(Paths.get(filePath2), factory,
+                    !Boolean.getBoolean(COMPACT_OUTPUT), start)) {
+                long recovered = log == null ? 0
+                        : log.replay(command -> output.write(scheduler.submit(command)));
+                long position = 0;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    long from = parser.getTokenLocation().getByteOffset();
+                    if (recorder != null) {
+                        recorder.release(from);
+                    }
+                    CommandInput command = objectMapper.readValue(parser, CommandInput.class);
+                    if (position++ < recovered) {
+                        continue;
+                    }
+                    if (log != null) {
+                        long to = parser.getCurrentLocation().getByteOffset();
+                        log.append(recorder.buffer(), recorder.index(from), (int) (to - from));
+                    }
+                    output.write(scheduler.submit(command));
+                    if (log != null && log.needsCheckpoint(checkpointEvery)) {
+                        output.write(scheduler.flush());
+                        log.checkpoint(output.sync());
+                    }
+                }
+                output.write(scheduler.flush());
+                output.finish();
+            }
+            if (log != null) {
+                log.delete();
             }
+        } finally {
+            Admin.getInstance().reset();
+        }
+        if (Boolean.getBoolean(COMMAND_STATISTICS)) {
+            System.err.println(filePath1 + ":");
+            for (String line : CommandDispatcher.statistics()) {
+                System.err.println("  " + line);
+            }
+            CommandDispatcher.resetStatistics();
         }
-
-        ObjectWriter objectWriter = objectMapper.writerWithDefaultPrettyPrinter();
-        objectWriter.writeValue(new File(filePath2), outputs);
-
-        Admin.getInstance().reset();
     }
 }